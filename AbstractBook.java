@@ -0,0 +1,109 @@
+package Book;
+import java.util.*;
+import java.time.LocalDate;
+
+// Book behaviour written against the accessors only, so it holds no state.
+// Book_details keeps its data in fields; BookCatalogStore hands out views
+// whose data lives in the store's columns.
+public abstract class AbstractBook {
+
+    // Modified display method
+    public void display() {   
+        System.out.println("=== Book Details ===");
+        System.out.println("ISBN: " + getIsbn());
+        System.out.println("Title: " + getName());
+        System.out.println("Author: " + getAuthor());
+        System.out.println("Genre: " + getGenre());
+        System.out.println("Price: $" + String.format("%.2f", getPrice()));
+        System.out.println("Year: " + getYear());
+        System.out.println("Available: " + (isAvailable() ? "Yes" : "No"));
+        System.out.println("Copies: " + getCopiesAvailable());
+        System.out.println("Categories: " + String.join(", ", getCategories()));
+        List<String> reviews = getReviews();
+        if (!reviews.isEmpty()) {
+            System.out.println("Reviews:");
+            reviews.forEach(review -> System.out.println("- " + review));
+        }
+    }
+
+    // Modified input method
+    public void Modified() {
+        try (Scanner sc = new Scanner(System.in)) {
+            System.out.println("=== Update Book Details ===");
+            System.out.print("Enter ISBN: ");
+            setIsbn(sc.nextLine());
+            
+            System.out.print("Enter book title: ");
+            setName(sc.nextLine());
+            
+            System.out.print("Enter author name: ");
+            setAuthor(sc.nextLine());
+            
+            System.out.print("Enter genre: ");
+            setGenre(sc.nextLine());
+            
+            System.out.print("Enter price: ");
+            while (!sc.hasNextFloat()) {
+                System.out.println("Invalid price. Please enter a number.");
+                sc.next();
+            }
+            setPrice(sc.nextFloat());
+            
+            System.out.print("Enter publication year: ");
+            while (!sc.hasNextInt()) {
+                System.out.println("Invalid year. Please enter a number.");
+                sc.next();
+            }
+            setYear(sc.nextInt());
+            
+            System.out.print("Enter number of copies: ");
+            while (!sc.hasNextInt()) {
+                System.out.println("Invalid number. Please enter a number.");
+                sc.next();
+            }
+            updateAvailability(sc.nextInt());
+        }
+    }
+
+    // Added validation methods
+    public boolean isValid() {
+        String isbn = getIsbn();
+        String name = getName();
+        String author = getAuthor();
+        int year = getYear();
+        return isbn != null && !isbn.isEmpty() &&
+               name != null && !name.isEmpty() &&
+               author != null && !author.isEmpty() &&
+               getPrice() > 0 &&
+               year > 0 &&
+               year <= LocalDate.now().getYear();
+    }
+
+    public boolean isClassic() {
+        return getYear() < 1950;
+    }
+
+    // Mutators
+    public abstract void addReview(String review);
+    public abstract void addCategory(String category);
+    public abstract void updateAvailability(int copies);
+
+    // Getters and setters
+    public abstract String getIsbn();
+    public abstract void setIsbn(String isbn);
+    public abstract String getName();
+    public abstract void setName(String name);
+    public abstract String getAuthor();
+    public abstract void setAuthor(String author);
+    public abstract String getGenre();
+    public abstract void setGenre(String genre);
+    public abstract int getYear();
+    public abstract void setYear(int year);
+    public abstract float getPrice();
+    public abstract void setPrice(float price);
+    public abstract boolean isAvailable();
+    public abstract int getCopiesAvailable();
+    public abstract LocalDate getLastModified();
+    public abstract List<String> getReviews();
+    public abstract Set<String> getCategories();
+}
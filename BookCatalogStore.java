@@ -0,0 +1,276 @@
+package Book;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.LocalDate;
+import java.util.*;
+
+// Compact column store for large catalogs.
+// Fixed-width fields live in primitive arrays, one slot per book: price in
+// cents, year, copies, last-modified epoch-day and a flags byte. Authors,
+// genres and categories are kept once each in string pools and referenced
+// by id. Reviews are rare, so they sit in a sparse side map. Books are
+// only handed out as two-field views over a row.
+public class BookCatalogStore {
+    private static final byte AVAILABLE = 1;
+
+    private int size;
+    private String[] isbns;
+    private String[] names;
+    private int[] authorIds;
+    private int[] genreIds;
+    private int[] priceCents;
+    private short[] years;
+    private int[] copies;
+    private int[] lastModifiedDays;
+    private byte[] flags;
+
+    private final StringPool authors = new StringPool();
+    private final StringPool genres = new StringPool();
+    private final StringPool categoryNames = new StringPool();
+    private final Map<Integer, int[]> categories = new HashMap<>();
+    private final Map<Integer, List<String>> reviews = new HashMap<>();
+    private final Map<String, Integer> rowsByIsbn = new HashMap<>();
+
+    public BookCatalogStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        isbns = new String[capacity];
+        names = new String[capacity];
+        authorIds = new int[capacity];
+        genreIds = new int[capacity];
+        priceCents = new int[capacity];
+        years = new short[capacity];
+        copies = new int[capacity];
+        lastModifiedDays = new int[capacity];
+        flags = new byte[capacity];
+    }
+
+    // Interns repeated strings and hands out dense ids for them
+    static class StringPool {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        String valueOf(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    // Added add methods
+    public AbstractBook add(String isbn, String name, String author, String genre, float price, int year) {
+        if (rowsByIsbn.containsKey(isbn)) {
+            throw new IllegalArgumentException("Duplicate ISBN: " + isbn);
+        }
+        ensureCapacity(size + 1);
+        int row = size++;
+        isbns[row] = isbn;
+        names[row] = name;
+        authorIds[row] = authors.idOf(author);
+        genreIds[row] = genres.idOf(genre);
+        priceCents[row] = toCents(price);
+        years[row] = (short) year;
+        copies[row] = 1;
+        lastModifiedDays[row] = (int) LocalDate.now().toEpochDay();
+        flags[row] = AVAILABLE;
+        rowsByIsbn.put(isbn, row);
+        return new BookView(this, row);
+    }
+
+    // Copies an existing book into the store
+    public AbstractBook add(AbstractBook book) {
+        AbstractBook view = add(book.getIsbn(), book.getName(), book.getAuthor(),
+                                book.getGenre(), book.getPrice(), book.getYear());
+        view.updateAvailability(book.getCopiesAvailable());
+        book.getCategories().forEach(view::addCategory);
+        book.getReviews().forEach(view::addReview);
+        int row = ((BookView) view).row;
+        lastModifiedDays[row] = (int) book.getLastModified().toEpochDay();
+        return view;
+    }
+
+    public AbstractBook get(String isbn) {
+        Integer row = rowsByIsbn.get(isbn);
+        return row == null ? null : new BookView(this, row);
+    }
+
+    public AbstractBook get(int row) {
+        Objects.checkIndex(row, size);
+        return new BookView(this, row);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int distinctAuthors() {
+        return authors.size();
+    }
+
+    public int distinctGenres() {
+        return genres.size();
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= isbns.length) return;
+        int capacity = Math.max(needed, isbns.length + (isbns.length >> 1));
+        isbns = Arrays.copyOf(isbns, capacity);
+        names = Arrays.copyOf(names, capacity);
+        authorIds = Arrays.copyOf(authorIds, capacity);
+        genreIds = Arrays.copyOf(genreIds, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        years = Arrays.copyOf(years, capacity);
+        copies = Arrays.copyOf(copies, capacity);
+        lastModifiedDays = Arrays.copyOf(lastModifiedDays, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    private static int toCents(float price) {
+        return Math.round(price * 100);
+    }
+
+    private void touch(int row) {
+        lastModifiedDays[row] = (int) LocalDate.now().toEpochDay();
+    }
+
+    // A book over one row of the store; the base class is stateless, so a
+    // view holds nothing but the store and the row
+    static final class BookView extends AbstractBook {
+        private final BookCatalogStore store;
+        private final int row;
+
+        BookView(BookCatalogStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override public String getIsbn() { return store.isbns[row]; }
+        @Override public String getName() { return store.names[row]; }
+        @Override public void setName(String name) { store.names[row] = name; }
+        @Override public String getAuthor() { return store.authors.valueOf(store.authorIds[row]); }
+        @Override public void setAuthor(String author) { store.authorIds[row] = store.authors.idOf(author); }
+        @Override public String getGenre() { return store.genres.valueOf(store.genreIds[row]); }
+        @Override public void setGenre(String genre) { store.genreIds[row] = store.genres.idOf(genre); }
+        @Override public float getPrice() { return store.priceCents[row] / 100f; }
+        @Override public void setPrice(float price) { store.priceCents[row] = toCents(price); }
+        @Override public int getYear() { return store.years[row]; }
+        @Override public void setYear(int year) { store.years[row] = (short) year; }
+        @Override public boolean isAvailable() { return (store.flags[row] & AVAILABLE) != 0; }
+        @Override public int getCopiesAvailable() { return store.copies[row]; }
+        @Override public LocalDate getLastModified() { return LocalDate.ofEpochDay(store.lastModifiedDays[row]); }
+
+        // the ISBN is the store's key
+        @Override
+        public void setIsbn(String isbn) {
+            String old = store.isbns[row];
+            if (old.equals(isbn)) return;
+            if (store.rowsByIsbn.containsKey(isbn)) {
+                throw new IllegalArgumentException("Duplicate ISBN: " + isbn);
+            }
+            store.rowsByIsbn.remove(old);
+            store.rowsByIsbn.put(isbn, row);
+            store.isbns[row] = isbn;
+        }
+
+        @Override
+        public void updateAvailability(int copies) {
+            store.copies[row] = copies;
+            store.flags[row] = (byte) (copies > 0 ? store.flags[row] | AVAILABLE : store.flags[row] & ~AVAILABLE);
+            store.touch(row);
+        }
+
+        @Override
+        public void addReview(String review) {
+            store.reviews.computeIfAbsent(row, k -> new ArrayList<>(1)).add(review);
+            store.touch(row);
+        }
+
+        @Override
+        public List<String> getReviews() {
+            return new ArrayList<>(store.reviews.getOrDefault(row, List.of()));
+        }
+
+        @Override
+        public void addCategory(String category) {
+            int id = store.categoryNames.idOf(category);
+            int[] ids = store.categories.getOrDefault(row, new int[0]);
+            for (int existing : ids) {
+                if (existing == id) return;
+            }
+            int[] updated = Arrays.copyOf(ids, ids.length + 1);
+            updated[ids.length] = id;
+            store.categories.put(row, updated);
+        }
+
+        @Override
+        public Set<String> getCategories() {
+            Set<String> result = new HashSet<>();
+            for (int id : store.categories.getOrDefault(row, new int[0])) {
+                result.add(store.categoryNames.valueOf(id));
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BookView other && other.store == store && other.row == row;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(store) + row;
+        }
+    }
+
+    // Measures heap per book for Book_details objects against the store.
+    // Usage: java Book.BookCatalogStore [books]
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] genreNames = { "Fiction", "Science", "History", "Poetry", "Travel", "Biography" };
+
+        long base = usedHeap();
+        List<Book_details> heapBooks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            heapBooks.add(new Book_details("ISBN-" + i, "Title " + i, "Author " + (i % 20_000),
+                                           genreNames[i % genreNames.length], 9.99f + i % 50, 1900 + i % 120));
+        }
+        long heapBytes = usedHeap() - base;
+        Reference.reachabilityFence(heapBooks);
+        System.out.printf("Book_details objects: %,d bytes (%.1f bytes/book)%n",
+                          heapBytes, (double) heapBytes / count);
+        heapBooks = null;
+
+        base = usedHeap();
+        BookCatalogStore store = new BookCatalogStore(count);
+        for (int i = 0; i < count; i++) {
+            store.add("ISBN-" + i, "Title " + i, "Author " + (i % 20_000),
+                      genreNames[i % genreNames.length], 9.99f + i % 50, 1900 + i % 120);
+        }
+        long storeBytes = usedHeap() - base;
+        Reference.reachabilityFence(store);
+        System.out.printf("BookCatalogStore:     %,d bytes (%.1f bytes/book)%n",
+                          storeBytes, (double) storeBytes / count);
+        System.out.printf("Saving: %.1f%% (%d books, %d authors, %d genres)%n",
+                          100.0 * (heapBytes - storeBytes) / heapBytes,
+                          store.size(), store.distinctAuthors(), store.distinctGenres());
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,258 @@
+package library;
+
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import library.LibraryManagementSystem.LendingRecord;
+
+/**
+ * Co-Borrowing Model
+ * "Members who borrowed this also borrowed" counts, kept up to date as
+ * loans are made. Books get dense int ids, and each book's neighbours sit
+ * in an open-addressed int-to-int table. Each member contributes pairs
+ * between a new loan and up to RECENT_BOOKS of their previous distinct
+ * titles, so a loan adds at most RECENT_BOOKS pairs.
+ *
+ * Counts are kept exactly and only the top list is cut to TOP_N, with
+ * ties broken by ISBN. The model is therefore a function of each member's
+ * loans alone, and a model updated loan by loan agrees with build() over
+ * the same history. Queries return the cached top list, which is
+ * recomputed only after the book's counts change, so a lookup costs
+ * microseconds. build() recomputes the whole model in parallel.
+ */
+public class CoBorrowingModel {
+    private static final int RECENT_BOOKS = 32;
+    private static final int TOP_N = 16;
+
+    private final Map<String, Integer> bookIds = new HashMap<>();
+    private final List<String> isbns = new ArrayList<>();
+    private final List<Neighbours> neighbours = new ArrayList<>();
+    private final Map<String, Recent> members = new HashMap<>();
+
+    // Neighbours Class
+    // Open-addressed co-borrow counts for one book, keyed by book id
+    static final class Neighbours {
+        private static final int EMPTY = -1;
+
+        private int[] keys;
+        private int[] counts;
+        private int size;
+        // sorted top list, null once the counts have moved
+        private int[] top;
+
+        Neighbours() {
+            this(16);
+        }
+
+        private Neighbours(int capacity) {
+            keys = new int[capacity];
+            counts = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        void add(int key, int delta) {
+            top = null;
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    counts[slot] += delta;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            counts[slot] = delta;
+            if (++size * 4 > keys.length * 3) {
+                rehash(keys.length * 2);
+            }
+        }
+
+        void addAll(Neighbours other) {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != EMPTY) {
+                    add(other.keys[slot], other.counts[slot]);
+                }
+            }
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            reset(capacity);
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    put(oldKeys[slot], oldCounts[slot]);
+                }
+            }
+        }
+
+        private void reset(int capacity) {
+            keys = new int[capacity];
+            counts = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+
+        private void put(int key, int count) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            counts[slot] = count;
+            size++;
+        }
+
+        int count(int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) return counts[slot];
+                slot = (slot + 1) & mask;
+            }
+            return 0;
+        }
+
+        // the TOP_N strongest neighbours, by insertion into a sorted array;
+        // ISBNs break ties, since ids depend on the order books were seen
+        int[] top(List<String> isbns) {
+            if (top == null) {
+                int[] best = new int[TOP_N];
+                int n = 0;
+                for (int slot = 0; slot < keys.length; slot++) {
+                    int key = keys[slot];
+                    if (key == EMPTY) continue;
+                    if (n == TOP_N && !stronger(key, counts[slot], best[n - 1], isbns)) continue;
+                    int i = n < TOP_N ? n++ : n - 1;
+                    while (i > 0 && stronger(key, counts[slot], best[i - 1], isbns)) {
+                        best[i] = best[i - 1];
+                        i--;
+                    }
+                    best[i] = key;
+                }
+                top = Arrays.copyOf(best, n);
+            }
+            return top;
+        }
+
+        private boolean stronger(int key, int count, int other, List<String> isbns) {
+            int otherCount = count(other);
+            if (count != otherCount) return count > otherCount;
+            return isbns.get(key).compareTo(isbns.get(other)) < 0;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // A member's most recent distinct titles, oldest overwritten first
+    static final class Recent {
+        private final int[] books = new int[RECENT_BOOKS];
+        private int size;
+        private int next;
+
+        boolean contains(int book) {
+            for (int i = 0; i < size; i++) {
+                if (books[i] == book) return true;
+            }
+            return false;
+        }
+
+        void add(int book) {
+            books[next] = book;
+            next = (next + 1) % books.length;
+            size = Math.min(size + 1, books.length);
+        }
+    }
+
+    // Incremental update, called for every new loan
+    public synchronized void onLend(String memberId, String isbn) {
+        int book = bookId(isbn);
+        Recent recent = members.computeIfAbsent(memberId, k -> new Recent());
+        record(neighbours::get, recent, book);
+    }
+
+    private static void record(IntFunction<Neighbours> neighbours, Recent recent, int book) {
+        // borrowing a title again adds no new pairs
+        if (recent.contains(book)) return;
+        for (int i = 0; i < recent.size; i++) {
+            int other = recent.books[i];
+            neighbours.apply(book).add(other, 1);
+            neighbours.apply(other).add(book, 1);
+        }
+        recent.add(book);
+    }
+
+    private int bookId(String isbn) {
+        Integer id = bookIds.get(isbn);
+        if (id == null) {
+            id = isbns.size();
+            bookIds.put(isbn, id);
+            isbns.add(isbn);
+            neighbours.add(new Neighbours());
+        }
+        return id;
+    }
+
+    // ISBNs most often borrowed by the same members, strongest first
+    public synchronized List<String> recommend(String isbn, int limit) {
+        Integer id = bookIds.get(isbn);
+        if (id == null) return List.of();
+        int[] top = neighbours.get(id).top(isbns);
+        List<String> result = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && result.size() < limit; i++) {
+            result.add(isbns.get(top[i]));
+        }
+        return result;
+    }
+
+    public synchronized int getBookCount() {
+        return isbns.size();
+    }
+
+    // Full Rebuild
+    // Members are split into chunks, and each chunk is counted into its own
+    // partial tables in parallel. The partials are then merged one book at
+    // a time, also in parallel. Each member's history is replayed in borrow
+    // order, the same way onLend would have seen it.
+    public static CoBorrowingModel build(Map<String, List<LendingRecord>> history) {
+        CoBorrowingModel model = new CoBorrowingModel();
+        history.values().forEach(records -> records.forEach(record -> model.bookId(record.getBook().getIsbn())));
+        int books = model.isbns.size();
+
+        List<Map.Entry<String, List<LendingRecord>>> entries = new ArrayList<>(history.entrySet());
+        int chunks = Math.max(1, Math.min(entries.size(), Runtime.getRuntime().availableProcessors()));
+        // partial tables are only allocated for books the chunk touches
+        record Partial(Neighbours[] neighbours, Map<String, Recent> members) {}
+
+        List<Partial> partials = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            Neighbours[] local = new Neighbours[books];
+            IntFunction<Neighbours> table = b -> local[b] != null ? local[b] : (local[b] = new Neighbours());
+            Map<String, Recent> recents = new HashMap<>();
+            for (int i = chunk; i < entries.size(); i += chunks) {
+                Recent recent = new Recent();
+                for (LendingRecord record : entries.get(i).getValue()) {
+                    record(table, recent, model.bookIds.get(record.getBook().getIsbn()));
+                }
+                recents.put(entries.get(i).getKey(), recent);
+            }
+            return new Partial(local, recents);
+        }).toList();
+
+        IntStream.range(0, books).parallel().forEach(b -> {
+            Neighbours merged = model.neighbours.get(b);
+            for (Partial partial : partials) {
+                if (partial.neighbours()[b] != null) {
+                    merged.addAll(partial.neighbours()[b]);
+                }
+            }
+        });
+        partials.forEach(partial -> model.members.putAll(partial.members()));
+        return model;
+    }
+}
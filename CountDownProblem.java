@@ -1,9 +1,36 @@
+package countdown;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.HashSet;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /*
  * This program is Java port of the Haskell example at
@@ -117,6 +144,138 @@ class CountDownProblem {
       };
    }
 
+   // Hash-consing: nodes are built through the table, so structurally
+   // equal subtrees are a single shared instance. Children are interned
+   // before their parent, so an App is found by its operator and the
+   // identities of its children; the identity hashes live in the object
+   // headers, so no subtree is ever walked to hash or compare it. A table
+   // serves one solver call and is not thread-safe.
+   static final class ExprTable {
+      private final Map<Integer, Val> vals = new HashMap<>();
+      // open-addressed, linear probing
+      private App[] apps = new App[64];
+      private int size;
+
+      Val val(int n) {
+         return vals.computeIfAbsent(n, Val::new);
+      }
+
+      App app(Op op, Expr l, Expr r) {
+         int mask = apps.length - 1;
+         int slot = hash(op, l, r) & mask;
+         for (App app; (app = apps[slot]) != null; slot = (slot + 1) & mask) {
+            if (app.op() == op && app.l() == l && app.r() == r) {
+               return app;
+            }
+         }
+         var app = new App(op, l, r);
+         apps[slot] = app;
+         if (++size * 4 > apps.length * 3) {
+            rehash();
+         }
+         return app;
+      }
+
+      // interns a tree that was built elsewhere, bottom up
+      Expr intern(Expr expr) {
+         return switch (expr) {
+            case Val(var n) -> val(n);
+            case App(var op, var l, var r) -> app(op, intern(l), intern(r));
+         };
+      }
+
+      int size() {
+         return vals.size() + size;
+      }
+
+      private void rehash() {
+         var old = apps;
+         apps = new App[old.length * 2];
+         int mask = apps.length - 1;
+         for (App app : old) {
+            if (app != null) {
+               int slot = hash(app.op(), app.l(), app.r()) & mask;
+               while (apps[slot] != null) {
+                  slot = (slot + 1) & mask;
+               }
+               apps[slot] = app;
+            }
+         }
+      }
+
+      private static int hash(Op op, Expr l, Expr r) {
+         int h = (System.identityHashCode(l) * 31 + System.identityHashCode(r)) * 4 + op.ordinal();
+         h *= 0x9E3779B9;
+         return h ^ (h >>> 16);
+      }
+   }
+
+   // Canonical form: + and - chains become (sum of added terms) - (sum of
+   // subtracted terms), and likewise for * and /, with the operands of each
+   // sum or product ordered by value. Algebraically equal regroupings such
+   // as (a+b)+c, a+(c+b) and (a-d)+(b+c) map to the same canonical Expr.
+   static Expr canonical(Expr expr) {
+      return switch (expr) {
+         case Val v -> v;
+         case App(var op, var l, var r) when op == Op.Add || op == Op.Sub ->
+            group(expr, Op.Add, Op.Sub);
+         case App app -> group(expr, Op.Mul, Op.Div);
+      };
+   }
+
+   private static Expr group(Expr expr, Op plus, Op minus) {
+      var pos = new ArrayList<Expr>();
+      var neg = new ArrayList<Expr>();
+      terms(expr, plus, minus, true, pos, neg);
+      var sum = chain(plus, pos);
+      return neg.isEmpty() ? sum : new App(minus, sum, chain(plus, neg));
+   }
+
+   private static void terms(Expr expr, Op plus, Op minus, boolean positive,
+                             List<Expr> pos, List<Expr> neg) {
+      if (expr instanceof App(var op, var l, var r) && (op == plus || op == minus)) {
+         terms(l, plus, minus, positive, pos, neg);
+         terms(r, plus, minus, op == plus ? positive : !positive, pos, neg);
+      } else {
+         (positive ? pos : neg).add(canonical(expr));
+      }
+   }
+
+   private static final Comparator<Expr> CANONICAL_ORDER =
+      Comparator.<Expr>comparingInt(CountDownProblem::value).thenComparing(Expr::toStr);
+
+   // right-nested chain with the smallest operand first
+   private static Expr chain(Op op, List<Expr> operands) {
+      operands.sort(CANONICAL_ORDER);
+      var res = operands.get(operands.size() - 1);
+      for (int i = operands.size() - 2; i >= 0; i--) {
+         res = new App(op, operands.get(i), res);
+      }
+      return res;
+   }
+
+   // plain arithmetic value, without the valid' checks of eval
+   static int value(Expr expr) {
+      return switch (expr) {
+         case Val(var n) -> n;
+         case App(var op, var l, var r) -> apply(op, value(l), value(r));
+      };
+   }
+
+   // One representative per canonical form, in encounter order, with the
+   // kept expressions hash-consed so shared subtrees are stored once
+   static List<Expr> distinct(Stream<Expr> exprs) {
+      var table = new ExprTable();
+      var seen = new HashSet<Expr>();
+      return exprs.filter(e -> seen.add(canonical(e))).
+         map(table::intern).
+         toList();
+   }
+
+   static List<Expr> distinctSolutions(List<Integer> ns, int n) {
+      return distinct(solutions(ns, n));
+   }
+
    // type Result = (Expr,Int)
    record Result(Expr expr, int value) {
       @Override
@@ -126,7 +285,8 @@ class CountDownProblem {
    } 
 
    // combine'' :: Result -> Result -> [Result]
-   static List<Result> combine(Result lx, Result ry) {
+   // The new App nodes are built through the call's table
+   static List<Result> combine(Result lx, Result ry, ExprTable table) {
       // (l,x), (r,y) pattern
       var l = lx.expr();
       var x = lx.value(); 
@@ -135,13 +295,19 @@ class CountDownProblem {
 
       // combine'' (l,x) (r,y) = [(App o l r, apply o x y) | o <- ops, valid' o x y]
       return Stream.of(operators).
-                filter(op -> isValid(op, x, y)).
-                map(op -> new Result(new App(op, l, r), apply(op, x, y))).
+                filter(op -> isValidProbed(op, x, y)).
+                map(op -> new Result(table.app(op, l, r), apply(op, x, y))).
                 toList();
    }
 
    // results' :: [Int] -> [Result]
+   // Sub-results are recomputed for every split that needs them; with one
+   // table per call, the recomputed expressions share their nodes.
    static List<Result> results(List<Integer> ns) {
+      return results(ns, new ExprTable());
+   }
+
+   private static List<Result> results(List<Integer> ns, ExprTable table) {
       // results' []  = []                 
       if (ns.isEmpty()) {
          return List.of();
@@ -150,7 +316,7 @@ class CountDownProblem {
       // results' [n] = [(Val n,n) | n > 0]
       if (ns.size() == 1) {
          var n = head(ns);
-         return n > 0 ? List.of(new Result(new Val(n), n)) : List.of();
+         return n > 0 ? List.of(new Result(table.val(n), n)) : List.of();
       }
 
       // results' ns  = [res | (ls,rs) <- split ns,
@@ -164,14 +330,17 @@ class CountDownProblem {
       for (int i = 1; i < ns.size(); i++) {
          var ls = ns.subList(0, i);
          var rs = ns.subList(i, ns.size());
-         var lxs = results(ls);
-         var rys = results(rs);
+         var lxs = results(ls, table);
+         var rys = results(rs, table);
          for (Result lx : lxs) {
             for (Result ry : rys) {
-               res.addAll(combine(lx, ry));
+               res.addAll(combine(lx, ry, table));
             }
          }
       } 
+      if (INSTRUMENT) {
+         SolverMetrics.INSTANCE.node(ns.size(), res.size());
+      }
       return res;
    }
 
@@ -247,19 +416,34 @@ class CountDownProblem {
       return perms(xs).flatMap(l -> interleave(x, l));
    }
 
+   // subs :: [a] -> [[a]]
+   // Using Stream<List<Integer>> instead of List<List<Integer>>
+   static Stream<List<Integer>> subs(List<Integer> ns) {
+      // subs []     = [[]]
+      if (ns.isEmpty()) {
+         return Stream.of(List.of());
+      }
 
-    // Add new method
-    public boolean isClassic() {
-        return year < 1950 && price > 100;
-    }
-    
-    public String getGenreSummary() {
-        return String.format("Book genre: %s", this.genre);
-    }
+      // subs (x:xs) = yss ++ map (x:) yss
+      //               where yss = subs xs
+      var x = head(ns);
+      var yss = subs(tail(ns)).toList();
+      return Stream.concat(yss.stream(), yss.stream().map(ys -> cons(x, ys)));
+   }
+
+   // choices :: [a] -> [[a]]
+   static Stream<List<Integer>> choices(List<Integer> ns) {
+      // choices = concat . map perms . subs
+      return subs(ns).flatMap(CountDownProblem::perms);
+   }
 
    // solutions'' :: [Int] -> Int -> [Expr]
    // Using Stream<Expr> instead of List<Expr> 
    static Stream<Expr> solutions(List<Integer> ns, int n) {
+      if (INSTRUMENT) {
+         return SolverMetrics.INSTANCE.timedSolutions(ns, n);
+      }
+
       // solutions'' ns n = [e | ns' <- choices ns, (e,m) <- results' ns', m == n]
       return choices(ns).
          flatMap(choice -> results(choice).stream()).
@@ -267,56 +451,745 @@ class CountDownProblem {
          map(Result::expr);
    }
 
+   // Closest-match search: when the target is unreachable the game rewards
+   // the nearest value, so keep every expression at the best distance seen.
+   record Nearest(int distance, List<Expr> exprs) {
+      static final Nearest NONE = new Nearest(Integer.MAX_VALUE, List.of());
+
+      boolean isExact() {
+         return distance == 0;
+      }
+   }
+
+   // One pass over the same candidates as solutions''. The top level of
+   // results' is expanded inline so that combinations further away than
+   // the best distance so far are dropped before an App is allocated.
+   static Nearest nearestSolutions(List<Integer> ns, int n) {
+      var best = new int[] { Integer.MAX_VALUE };
+      var exprs = new ArrayList<Expr>();
+
+      // the choices are only collected up front when the phase is timed
+      Iterable<List<Integer>> choices;
+      if (INSTRUMENT) {
+         var start = System.nanoTime();
+         choices = choices(ns).toList();
+         SolverMetrics.INSTANCE.choicesPhase(System.nanoTime() - start);
+      } else {
+         choices = choices(ns)::iterator;
+      }
+
+      for (var choice : choices) {
+         if (choice.size() == 1) {
+            var v = head(choice);
+            if (v > 0) {
+               offer(best, exprs, new Val(v), v, n);
+            }
+            continue;
+         }
+         for (int i = 1; i < choice.size(); i++) {
+            var start = INSTRUMENT ? System.nanoTime() : 0L;
+            var lxs = results(choice.subList(0, i));
+            var rys = results(choice.subList(i, choice.size()));
+            var mid = INSTRUMENT ? System.nanoTime() : 0L;
+            for (Result lx : lxs) {
+               for (Result ry : rys) {
+                  var x = lx.value();
+                  var y = ry.value();
+                  for (Op op : operators) {
+                     if (isValidProbed(op, x, y)) {
+                        var v = apply(op, x, y);
+                        if (Math.abs(v - n) <= best[0]) {
+                           offer(best, exprs, new App(op, lx.expr(), ry.expr()), v, n);
+                        }
+                     }
+                  }
+               }
+            }
+            if (INSTRUMENT) {
+               SolverMetrics.INSTANCE.resultsPhase(mid - start);
+               SolverMetrics.INSTANCE.filterPhase(System.nanoTime() - mid);
+            }
+         }
+      }
+
+      return exprs.isEmpty() ? Nearest.NONE : new Nearest(best[0], List.copyOf(exprs));
+   }
+
+   private static void offer(int[] best, List<Expr> exprs, Expr e, int v, int n) {
+      var d = Math.abs(v - n);
+      if (d < best[0]) {
+         best[0] = d;
+         exprs.clear();
+      }
+      if (d == best[0]) {
+         exprs.add(e);
+      }
+   }
+
+   // Symmetry pruning on top of valid'. Chains of + and * are kept only in
+   // right-nested form with their operands in CANONICAL_ORDER, (a-b)-c only
+   // as a-(b+c), a-(b-c) and a+(b-c) only as (a+c)-b, and likewise for *
+   // and /. What is left is exactly the canonical form, so each regrouping
+   // and reordering is generated once. x and y are the values of l and r.
+   static boolean isCanonical(Op op, Expr l, int x, Expr r, int y) {
+      return switch (op) {
+         case Add -> !isApp(l, Op.Add) && !isApp(l, Op.Sub) && !isApp(r, Op.Sub) && inOrder(op, l, x, r, y);
+         case Mul -> !isApp(l, Op.Mul) && !isApp(l, Op.Div) && !isApp(r, Op.Div) && inOrder(op, l, x, r, y);
+         case Sub, Div -> !isApp(l, op) && !isApp(r, op);
+      };
+   }
+
+   // l may not sort after the first operand of the chain r; r is already
+   // in order, so the whole chain is
+   private static boolean inOrder(Op op, Expr l, int x, Expr r, int y) {
+      var first = r instanceof App(var o, var rl, var rr) && o == op ? rl : r;
+      var v = first == r ? y : value(first);
+      return x != v ? x < v : Expr.toStr(l).compareTo(Expr.toStr(first)) <= 0;
+   }
+
+   private static boolean isApp(Expr expr, Op op) {
+      return expr instanceof App app && app.op() == op;
+   }
+
+   // Multiset solving: allows repeated numbers such as 2,2,5,10,75,100.
+   // Instead of permuting the input list, every distinct sub-multiset is
+   // solved once (memoised by a mixed-radix key over the multiplicities)
+   // and split into each distinct ordered pair of sub-multisets once.
+   static final class MultisetSolver {
+      private final int[] values;
+      private final int[] radix;
+      private final int[] limits;
+      private final List<List<Result>> memo;
+      private final int[][] reachable;
+      private final int full;
+      // the memoised results' expressions are built here, so equal
+      // subtrees are shared across sub-multisets
+      private final ExprTable table = new ExprTable();
+
+      MultisetSolver(List<Integer> ns) {
+         var sorted = ns.stream().mapToInt(Integer::intValue).sorted().toArray();
+         var distinct = (int) Arrays.stream(sorted).distinct().count();
+         this.values = new int[distinct];
+         this.limits = new int[distinct];
+         this.radix = new int[distinct];
+         int d = -1;
+         for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+               values[++d] = sorted[i];
+            }
+            limits[d]++;
+         }
+         int weight = 1;
+         for (int i = 0; i < distinct; i++) {
+            radix[i] = weight;
+            weight *= limits[i] + 1;
+         }
+         this.full = weight - 1;
+         this.memo = new ArrayList<>(Collections.nCopies(weight, null));
+         this.reachable = new int[weight][];
+      }
+
+      private int count(int key, int i) {
+         return key / radix[i] % (limits[i] + 1);
+      }
+
+      private int size(int key) {
+         int size = 0;
+         for (int i = 0; i < values.length; i++) {
+            size += count(key, i);
+         }
+         return size;
+      }
+
+      // every non-empty sub-multiset of key, including key itself
+      private IntStream subKeys(int key) {
+         return IntStream.rangeClosed(1, key).filter(sub -> {
+            for (int i = 0; i < values.length; i++) {
+               if (count(sub, i) > count(key, i)) {
+                  return false;
+               }
+            }
+            return true;
+         });
+      }
+
+      // results' over a sub-multiset, splitting into (ls, rs) = (sub, key - sub)
+      List<Result> results(int key) {
+         return results(key, () -> false);
+      }
+
+      // as above, throwing CancellationException before the next split once
+      // stop is true; only finished sub-multisets are memoised, so the memo
+      // stays valid for later searches
+      List<Result> results(int key, BooleanSupplier stop) {
+         var cached = memo.get(key);
+         if (cached != null) {
+            return cached;
+         }
+         var res = new ArrayList<Result>();
+         if (size(key) == 1) {
+            var n = values[IntStream.range(0, values.length).filter(i -> count(key, i) == 1).findFirst().getAsInt()];
+            if (n > 0) {
+               res.add(new Result(table.val(n), n));
+            }
+         } else {
+            subKeys(key).filter(sub -> sub != key).forEach(sub -> {
+               if (stop.getAsBoolean()) {
+                  throw new CancellationException();
+               }
+               var lxs = results(sub, stop);
+               var rys = results(key - sub, stop);
+               for (Result lx : lxs) {
+                  for (Result ry : rys) {
+                     combineCanonical(lx, ry, res);
+                  }
+               }
+            });
+         }
+         if (INSTRUMENT) {
+            SolverMetrics.INSTANCE.node(size(key), res.size());
+         }
+         memo.set(key, res);
+         return res;
+      }
+
+      private void combineCanonical(Result lx, Result ry, List<Result> out) {
+         var x = lx.value();
+         var y = ry.value();
+         for (Op op : operators) {
+            if (isValidProbed(op, x, y) && isCanonical(op, lx.expr(), x, ry.expr(), y)) {
+               out.add(new Result(table.app(op, lx.expr(), ry.expr()), apply(op, x, y)));
+            }
+         }
+      }
+
+      // results' without the expressions: the distinct values reachable
+      // from a sub-multiset, so equal values are only combined once
+      int[] values(int key) {
+         return values(key, () -> false);
+      }
+
+      // as above, throwing CancellationException before the next split once
+      // stop is true
+      int[] values(int key, BooleanSupplier stop) {
+         var cached = reachable[key];
+         if (cached != null) {
+            return cached;
+         }
+         var vs = new HashSet<Integer>();
+         if (size(key) == 1) {
+            var n = values[IntStream.range(0, values.length).filter(i -> count(key, i) == 1).findFirst().getAsInt()];
+            if (n > 0) {
+               vs.add(n);
+            }
+         } else {
+            subKeys(key).filter(sub -> sub != key).forEach(sub -> {
+               if (stop.getAsBoolean()) {
+                  throw new CancellationException();
+               }
+               for (int v : KERNEL.combine(values(sub, stop), values(key - sub, stop))) {
+                  vs.add(v);
+               }
+            });
+         }
+         var res = vs.stream().mapToInt(Integer::intValue).toArray();
+         reachable[key] = res;
+         return res;
+      }
+
+      // every target in 1..999 reachable from some sub-multiset
+      BitSet reachableTargets() {
+         var targets = new BitSet(1000);
+         subKeys(full).forEach(key -> {
+            for (int v : values(key)) {
+               if (isValidTarget(v)) {
+                  targets.set(v);
+               }
+            }
+         });
+         return targets;
+      }
+
+      Stream<Expr> solutions(int n) {
+         return subKeys(full).boxed().
+            flatMap(key -> results(key).stream()).
+            filter(res -> res.value() == n).
+            map(Result::expr);
+      }
+
+      // Iterative deepening: solutions using 1 number, then 2, and so on.
+      // A sub-multiset is expanded only if its reachable values include n,
+      // and both the values and the results of smaller sizes stay in the
+      // memo tables for the next depth. The stream is lazy, so limit(k)
+      // stops the search once k solutions have been found.
+      Stream<Expr> simplestSolutions(int n) {
+         return simplestSolutions(n, () -> false);
+      }
+
+      // as above, ending before the next sub-multiset once stop is true, or
+      // throwing CancellationException if stop comes mid-way through one
+      Stream<Expr> simplestSolutions(int n, BooleanSupplier stop) {
+         return IntStream.rangeClosed(1, size(full)).boxed().
+            flatMap(depth -> subKeys(full).filter(key -> size(key) == depth).boxed()).
+            takeWhile(key -> !stop.getAsBoolean()).
+            filter(key -> Arrays.stream(values(key, stop)).anyMatch(v -> v == n)).
+            flatMap(key -> results(key, stop).stream()).
+            filter(res -> res.value() == n).
+            map(Result::expr);
+      }
+
+      Nearest nearest(int n) {
+         return nearest(n, () -> false);
+      }
+
+      // throws CancellationException once stop is true
+      Nearest nearest(int n, BooleanSupplier stop) {
+         var best = new int[] { Integer.MAX_VALUE };
+         var exprs = new ArrayList<Expr>();
+         subKeys(full).forEach(key ->
+            results(key, stop).forEach(res -> {
+               if (Math.abs(res.value() - n) <= best[0]) {
+                  offer(best, exprs, res.expr(), res.value(), n);
+               }
+            }));
+         return exprs.isEmpty() ? Nearest.NONE : new Nearest(best[0], List.copyOf(exprs));
+      }
+   }
+
+   static Stream<Expr> multisetSolutions(List<Integer> ns, int n) {
+      return ns.isEmpty() ? Stream.empty() : new MultisetSolver(ns).solutions(n);
+   }
+
+   // Solutions in order of how many numbers they use, fewest first; take
+   // the first k with limit(k)
+   static Stream<Expr> simplestSolutions(List<Integer> ns, int n) {
+      return ns.isEmpty() ? Stream.empty() : new MultisetSolver(ns).simplestSolutions(n);
+   }
+
+   static Nearest nearestMultisetSolutions(List<Integer> ns, int n) {
+      return ns.isEmpty() ? Nearest.NONE : new MultisetSolver(ns).nearest(n);
+   }
+
+   // Batch mode: all reachable targets for a draw in one pass, instead of
+   // one solutions'' run per target.
+   static BitSet reachableTargets(List<Integer> ns) {
+      return ns.isEmpty() ? new BitSet() : new MultisetSolver(ns).reachableTargets();
+   }
+
+   static Map<Integer, Boolean> solvable(List<Integer> ns, List<Integer> targets) {
+      var reachable = reachableTargets(ns);
+      var res = new LinkedHashMap<Integer, Boolean>();
+      targets.forEach(t -> res.put(t, isValidTarget(t) && reachable.get(t)));
+      return res;
+   }
+
+   // Persistent solvability index for every standard draw: six cards from
+   // two each of 1..10 and one each of 25, 50, 75, 100. The file is a small
+   // header followed by fixed-size records sorted by draw key, each holding
+   // the 1..999 reachability bitset, and is read through a memory map.
+   static final class SolvabilityIndex implements AutoCloseable {
+      static final int[] SMALL = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 };
+      static final int[] LARGE = { 25, 50, 75, 100 };
+      static final int DRAW_SIZE = 6;
+
+      private static final int MAGIC = 0x43444958; // "CDIX"
+      private static final int VERSION = 1;
+      private static final int HEADER_SIZE = 16;
+      private static final int BITSET_SIZE = 128;
+      private static final int RECORD_SIZE = Long.BYTES + BITSET_SIZE;
+
+      private final FileChannel channel;
+      private final MappedByteBuffer buffer;
+      private final int records;
+
+      private SolvabilityIndex(FileChannel channel, MappedByteBuffer buffer, int records) {
+         this.channel = channel;
+         this.buffer = buffer;
+         this.records = records;
+      }
+
+      // sorted draw packed one byte per card, so key order is draw order
+      static long key(List<Integer> draw) {
+         if (draw.size() != DRAW_SIZE) {
+            throw new IllegalArgumentException("A standard draw has " + DRAW_SIZE + " numbers");
+         }
+         long key = 0;
+         for (int n : draw.stream().sorted().toList()) {
+            key = (key << 8) | n;
+         }
+         return key;
+      }
+
+      // every distinct standard draw
+      static List<List<Integer>> standardDraws() {
+         var draws = new ArrayList<List<Integer>>();
+         for (int mask = 0; mask < 1 << LARGE.length; mask++) {
+            var large = new ArrayList<Integer>();
+            for (int i = 0; i < LARGE.length; i++) {
+               if ((mask & 1 << i) != 0) {
+                  large.add(LARGE[i]);
+               }
+            }
+            if (large.size() <= DRAW_SIZE) {
+               smallDraws(0, DRAW_SIZE - large.size(), large, draws);
+            }
+         }
+         return draws;
+      }
+
+      private static void smallDraws(int from, int remaining, List<Integer> draw,
+                                     List<List<Integer>> out) {
+         if (remaining == 0) {
+            out.add(List.copyOf(draw));
+            return;
+         }
+         for (int i = from; i < SMALL.length; i++) {
+            for (int copies = 1; copies <= Math.min(2, remaining); copies++) {
+               for (int c = 0; c < copies; c++) {
+                  draw.add(SMALL[i]);
+               }
+               smallDraws(i + 1, remaining - copies, draw, out);
+               for (int c = 0; c < copies; c++) {
+                  draw.remove(draw.size() - 1);
+               }
+            }
+         }
+      }
+
+      static void build(Path file) throws IOException {
+         var draws = standardDraws().stream().
+            sorted(Comparator.comparingLong(SolvabilityIndex::key)).
+            toList();
+         var bitsets = draws.parallelStream().
+            map(draw -> CountDownProblem.reachableTargets(draw).toByteArray()).
+            toList();
+
+         try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(draws.size());
+            out.writeInt(RECORD_SIZE);
+            for (int i = 0; i < draws.size(); i++) {
+               out.writeLong(key(draws.get(i)));
+               var bits = bitsets.get(i);
+               out.write(bits);
+               out.write(new byte[BITSET_SIZE - bits.length]);
+            }
+         }
+      }
+
+      static SolvabilityIndex open(Path file) throws IOException {
+         var channel = FileChannel.open(file, StandardOpenOption.READ);
+         try {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION ||
+                buffer.getInt(12) != RECORD_SIZE) {
+               throw new IOException("Not a solvability index: " + file);
+            }
+            return new SolvabilityIndex(channel, buffer, buffer.getInt(8));
+         } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+         }
+      }
+
+      // binary search over the record keys; -1 if the draw is not standard
+      private int offsetOf(List<Integer> draw) {
+         var key = key(draw);
+         int lo = 0;
+         int hi = records - 1;
+         while (lo <= hi) {
+            var mid = (lo + hi) >>> 1;
+            var offset = HEADER_SIZE + mid * RECORD_SIZE;
+            var midKey = buffer.getLong(offset);
+            if (midKey < key) {
+               lo = mid + 1;
+            } else if (midKey > key) {
+               hi = mid - 1;
+            } else {
+               return offset + Long.BYTES;
+            }
+         }
+         return -1;
+      }
+
+      boolean isSolvable(List<Integer> draw, int target) {
+         var offset = offsetOf(draw);
+         if (offset < 0) {
+            throw new IllegalArgumentException("Not a standard draw: " + draw);
+         }
+         return isValidTarget(target) &&
+            (buffer.get(offset + target / 8) & 1 << target % 8) != 0;
+      }
+
+      BitSet reachableTargets(List<Integer> draw) {
+         var offset = offsetOf(draw);
+         if (offset < 0) {
+            throw new IllegalArgumentException("Not a standard draw: " + draw);
+         }
+         var bits = new byte[BITSET_SIZE];
+         buffer.get(offset, bits);
+         return BitSet.valueOf(bits);
+      }
+
+      int size() {
+         return records;
+      }
+
+      @Override
+      public void close() throws IOException {
+         channel.close();
+      }
+   }
+
    // Add new method
    public static boolean isValidTarget(int target) {
       return target > 0 && target <= 999;
    }
 
+   // Solver instrumentation, enabled with -Dcountdown.instrument=true.
+   // INSTRUMENT is a static final constant, so with the property unset the
+   // JIT drops every probe and the solver runs exactly as before.
+   static final boolean INSTRUMENT = Boolean.getBoolean("countdown.instrument");
+
+   // JMX view of SolverMetrics; arrays are indexed by Op ordinal and by
+   // sub-problem size (how many numbers the expanded results' call had)
+   public interface SolverMetricsMBean {
+      long[] getAttempts();
+      long[] getAccepted();
+      long[] getNodesBySize();
+      long getChoicesNanos();
+      long getResultsNanos();
+      long getFilterNanos();
+      long getPeakResults();
+      void reset();
+   }
+
+   static final class SolverMetrics implements SolverMetricsMBean {
+      static final SolverMetrics INSTANCE = register(new SolverMetrics());
+
+      // point-in-time copy of the counters
+      record Snapshot(Map<Op, Long> attempts, Map<Op, Long> accepted, long[] nodesBySize,
+                      long choicesNanos, long resultsNanos, long filterNanos,
+                      long peakResults) {
+         @Override
+         public String toString() {
+            var sb = new StringBuilder("Solver Metrics:\n");
+            attempts.forEach((op, n) ->
+               sb.append(String.format("  %s: %d tried, %d valid%n", op, n, accepted.get(op))));
+            for (int size = 1; size < nodesBySize.length; size++) {
+               if (nodesBySize[size] > 0) {
+                  sb.append(String.format("  size %d: %d nodes expanded%n", size, nodesBySize[size]));
+               }
+            }
+            sb.append(String.format("  phases: choices %.1f ms, results %.1f ms, filter %.1f ms%n",
+                                    choicesNanos / 1e6, resultsNanos / 1e6, filterNanos / 1e6));
+            sb.append(String.format("  peak intermediate results: %d", peakResults));
+            return sb.toString();
+         }
+      }
+
+      private static final int MAX_SIZE = 16;
+
+      private final LongAdder[] attempts = adders(operators.length);
+      private final LongAdder[] accepted = adders(operators.length);
+      private final LongAdder[] nodes = adders(MAX_SIZE + 1);
+      private final LongAdder choicesNanos = new LongAdder();
+      private final LongAdder resultsNanos = new LongAdder();
+      private final LongAdder filterNanos = new LongAdder();
+      private final LongAccumulator peakResults = new LongAccumulator(Math::max, 0);
+
+      private static LongAdder[] adders(int n) {
+         return Stream.generate(LongAdder::new).limit(n).toArray(LongAdder[]::new);
+      }
+
+      private static SolverMetrics register(SolverMetrics metrics) {
+         if (INSTRUMENT) {
+            try {
+               ManagementFactory.getPlatformMBeanServer().registerMBean(
+                  metrics, new ObjectName("CountDownProblem:type=SolverMetrics"));
+            } catch (JMException e) {
+               System.err.println("Warning: solver metrics not registered: " + e.getMessage());
+            }
+         }
+         return metrics;
+      }
+
+      void operator(Op op, boolean valid) {
+         attempts[op.ordinal()].increment();
+         if (valid) {
+            accepted[op.ordinal()].increment();
+         }
+      }
+
+      void node(int size, int results) {
+         nodes[Math.min(size, MAX_SIZE)].increment();
+         peakResults.accumulate(results);
+      }
+
+      void choicesPhase(long nanos) {
+         choicesNanos.add(nanos);
+      }
+
+      void resultsPhase(long nanos) {
+         resultsNanos.add(nanos);
+      }
+
+      void filterPhase(long nanos) {
+         filterNanos.add(nanos);
+      }
+
+      // solutions'' with the choices / results / filter phases run one
+      // after another, so each can be timed on its own
+      Stream<Expr> timedSolutions(List<Integer> ns, int n) {
+         var start = System.nanoTime();
+         var choices = choices(ns).toList();
+         choicesNanos.add(System.nanoTime() - start);
+
+         var exprs = new ArrayList<Expr>();
+         for (var choice : choices) {
+            start = System.nanoTime();
+            var results = results(choice);
+            var mid = System.nanoTime();
+            for (var res : results) {
+               if (res.value() == n) {
+                  exprs.add(res.expr());
+               }
+            }
+            resultsNanos.add(mid - start);
+            filterNanos.add(System.nanoTime() - mid);
+         }
+         return exprs.stream();
+      }
+
+      private static long[] sums(LongAdder[] adders) {
+         return Stream.of(adders).mapToLong(LongAdder::sum).toArray();
+      }
+
+      @Override public long[] getAttempts() { return sums(attempts); }
+      @Override public long[] getAccepted() { return sums(accepted); }
+      @Override public long[] getNodesBySize() { return sums(nodes); }
+      @Override public long getChoicesNanos() { return choicesNanos.sum(); }
+      @Override public long getResultsNanos() { return resultsNanos.sum(); }
+      @Override public long getFilterNanos() { return filterNanos.sum(); }
+      @Override public long getPeakResults() { return peakResults.get(); }
+
+      Snapshot snapshot() {
+         var tried = new EnumMap<Op, Long>(Op.class);
+         var valid = new EnumMap<Op, Long>(Op.class);
+         for (Op op : operators) {
+            tried.put(op, attempts[op.ordinal()].sum());
+            valid.put(op, accepted[op.ordinal()].sum());
+         }
+         return new Snapshot(tried, valid, getNodesBySize(), getChoicesNanos(),
+                             getResultsNanos(), getFilterNanos(), getPeakResults());
+      }
+
+      @Override
+      public void reset() {
+         Stream.of(attempts, accepted, nodes).flatMap(Stream::of).forEach(LongAdder::reset);
+         choicesNanos.reset();
+         resultsNanos.reset();
+         filterNanos.reset();
+         peakResults.reset();
+      }
+   }
+
+   // valid' plus the operator probe
+   static boolean isValidProbed(Op op, int x, int y) {
+      var valid = isValid(op, x, y);
+      if (INSTRUMENT) {
+         SolverMetrics.INSTANCE.operator(op, valid);
+      }
+      return valid;
+   }
+
+   // Value-combination kernel: every apply o x y with valid' o x y, for all
+   // x in xs and y in ys, over plain int arrays. Used by the value-only
+   // reachability pass, where sub-problems are already sets of ints.
+   interface CombineKernel {
+      int[] combine(int[] xs, int[] ys);
+   }
+
+   static final class ScalarKernel implements CombineKernel {
+      @Override
+      public int[] combine(int[] xs, int[] ys) {
+         var out = new int[operators.length * xs.length * ys.length];
+         var n = 0;
+         for (int x : xs) {
+            for (int y : ys) {
+               for (Op op : operators) {
+                  if (isValidProbed(op, x, y)) {
+                     out[n++] = apply(op, x, y);
+                  }
+               }
+            }
+         }
+         return Arrays.copyOf(out, n);
+      }
+   }
+
+   // The jdk.incubator.vector kernel (vector/CountDownVectorKernel.java) is
+   // used when it was compiled in and -Dcountdown.vector=true is set. The
+   // scalar kernel stays in place when instrumenting, so probes see every op.
+   static final CombineKernel KERNEL = loadKernel();
+
+   private static CombineKernel loadKernel() {
+      if (!INSTRUMENT && Boolean.getBoolean("countdown.vector")) {
+         try {
+            return (CombineKernel) Class.forName("countdown.CountDownVectorKernel").
+               getDeclaredConstructor().newInstance();
+         } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Warning: vector kernel unavailable, using scalar: " + e);
+         }
+      }
+      return new ScalarKernel();
+   }
+
    // Solution statistics class
+   // All statistics are gathered in a single walk over the expression that
+   // only updates primitive fields, so no per-node collections are built.
    static class SolutionStats {
-      private final int operationCount;
-      private final Set<Op> usedOperators;
+      private int operationCount;
+      private int operatorMask;
       private final int depth;
-      private final int smallestNumber;
-      private final int largestNumber;
+      private int smallestNumber = Integer.MAX_VALUE;
+      private int largestNumber = Integer.MIN_VALUE;
 
       public SolutionStats(Expr expr) {
-         this.usedOperators = new HashSet<>();
-         this.operationCount = countOperations(expr);
-         this.depth = calculateDepth(expr);
-         var numbers = findAllNumbers(expr);
-         this.smallestNumber = numbers.stream().mapToInt(Integer::intValue).min().orElse(0);
-         this.largestNumber = numbers.stream().mapToInt(Integer::intValue).max().orElse(0);
+         this.depth = visit(expr);
       }
 
-      private int countOperations(Expr expr) {
+      // counts operations, operators and the number range on the way down,
+      // and returns the depth of the subtree on the way up
+      private int visit(Expr expr) {
          return switch (expr) {
-            case Val(var n) -> 0;
+            case Val(var n) -> {
+               smallestNumber = Math.min(smallestNumber, n);
+               largestNumber = Math.max(largestNumber, n);
+               yield 0;
+            }
             case App(var op, var l, var r) -> {
-               usedOperators.add(op);
-               yield 1 + countOperations(l) + countOperations(r);
+               operationCount++;
+               operatorMask |= 1 << op.ordinal();
+               yield 1 + Math.max(visit(l), visit(r));
             }
          };
       }
 
-      private int calculateDepth(Expr expr) {
-         return switch (expr) {
-            case Val(var n) -> 0;
-            case App(var op, var l, var r) -> 
-               1 + Math.max(calculateDepth(l), calculateDepth(r));
-         };
-      }
+      public int getOperationCount() { return operationCount; }
+      public int getDepth() { return depth; }
+      public int getSmallestNumber() { return smallestNumber; }
+      public int getLargestNumber() { return largestNumber; }
 
-      private List<Integer> findAllNumbers(Expr expr) {
-         return switch (expr) {
-            case Val(var n) -> List.of(n);
-            case App(var op, var l, var r) -> {
-               var numbers = new ArrayList<Integer>();
-               numbers.addAll(findAllNumbers(l));
-               numbers.addAll(findAllNumbers(r));
-               yield numbers;
+      public Set<Op> getUsedOperators() {
+         var used = EnumSet.noneOf(Op.class);
+         for (Op op : operators) {
+            if ((operatorMask & 1 << op.ordinal()) != 0) {
+               used.add(op);
             }
-         };
+         }
+         return used;
       }
 
       @Override
@@ -327,14 +1200,17 @@ class CountDownProblem {
             - Expression Depth: %d
             - Operators Used: %s
             - Number Range: %d to %d""",
-            operationCount, depth, usedOperators,
+            operationCount, depth, getUsedOperators(),
             smallestNumber, largestNumber);
       }
    }
 
    // Add new method to analyze solutions
+   // Solutions are independent, so large solution sets are analysed in
+   // parallel; toList keeps the encounter order.
    static List<SolutionStats> analyzeSolutions(Stream<Expr> solutions) {
       return solutions
+         .parallel()
          .map(SolutionStats::new)
          .toList();
    }
@@ -357,6 +1233,24 @@ class CountDownProblem {
          totalOperations++;
       }
 
+      // bulk form of addOperation, fed from the solver metrics
+      public void addOperations(Op op, long attempts, long successful) {
+         var uses = (int) Math.min(attempts, Integer.MAX_VALUE);
+         operatorUsage.merge(op, uses, Integer::sum);
+         operatorSuccessRate.merge(op, uses * ((double) successful / attempts), Double::sum);
+         totalOperations += uses;
+      }
+
+      static OperatorStatistics from(SolverMetrics.Snapshot snapshot) {
+         var stats = new OperatorStatistics();
+         snapshot.attempts().forEach((op, n) -> {
+            if (n > 0) {
+               stats.addOperations(op, n, snapshot.accepted().get(op));
+            }
+         });
+         return stats;
+      }
+
       public Map<Op, Double> getSuccessRates() {
          Map<Op, Double> rates = new EnumMap<>(Op.class);
          operatorUsage.forEach((op, usage) -> 
@@ -375,7 +1269,7 @@ class CountDownProblem {
    }
 
    static class ExpressionAnalyzer {
-      private final List<Expr> expressions;
+      private final List<SolutionStats> stats;
       private final OperatorStatistics opStats;
       private double averageDepth;
       private int maxDepth;
@@ -383,29 +1277,33 @@ class CountDownProblem {
       private int maxOperations;
 
       public ExpressionAnalyzer(List<Expr> expressions) {
-         this.expressions = expressions;
-         this.opStats = new OperatorStatistics();
+         this(analyzeSolutions(expressions.stream()), new OperatorStatistics());
+      }
+
+      // reuses statistics already computed by analyzeSolutions
+      public ExpressionAnalyzer(List<SolutionStats> stats, OperatorStatistics opStats) {
+         this.stats = stats;
+         this.opStats = opStats;
          analyzeExpressions();
       }
 
       private void analyzeExpressions() {
-         if (expressions.isEmpty()) return;
+         if (stats.isEmpty()) return;
 
-         int totalDepth = 0;
-         int totalOps = 0;
+         long totalDepth = 0;
+         long totalOps = 0;
          maxDepth = 0;
          maxOperations = 0;
 
-         for (Expr expr : expressions) {
-            SolutionStats stats = new SolutionStats(expr);
-            totalDepth += stats.depth;
-            totalOps += stats.operationCount;
-            maxDepth = Math.max(maxDepth, stats.depth);
-            maxOperations = Math.max(maxOperations, stats.operationCount);
+         for (SolutionStats stat : stats) {
+            totalDepth += stat.depth;
+            totalOps += stat.operationCount;
+            maxDepth = Math.max(maxDepth, stat.depth);
+            maxOperations = Math.max(maxOperations, stat.operationCount);
          }
 
-         averageDepth = (double) totalDepth / expressions.size();
-         averageOperations = (double) totalOps / expressions.size();
+         averageDepth = (double) totalDepth / stats.size();
+         averageOperations = (double) totalOps / stats.size();
       }
 
       @Override
@@ -418,16 +1316,78 @@ class CountDownProblem {
             - Average Operations: %.2f
             - Max Operations: %d
             %s""",
-            expressions.size(), averageDepth, maxDepth,
+            stats.size(), averageDepth, maxDepth,
             averageOperations, maxOperations, opStats);
       }
    }
 
+   // Self-check of the multiset solver's symmetry pruning: it must find
+   // exactly one solution per canonical form, as many as distinctSolutions
+   // keeps from the permutation search. Draws with and without repeats.
+   static boolean checkCanonical() {
+      record Case(List<Integer> draw, int target) {}
+      var cases = List.of(
+         new Case(List.of(1, 3, 7, 10, 25, 50), 765),
+         new Case(List.of(1, 3, 7, 10, 25, 50), 100),
+         new Case(List.of(2, 2, 5, 10, 75, 100), 437),
+         new Case(List.of(3, 3, 6, 6, 25, 50), 312),
+         new Case(List.of(1, 1, 2, 4, 8), 21));
+      var ok = true;
+      for (var c : cases) {
+         var multiset = multisetSolutions(c.draw(), c.target()).count();
+         var distinct = distinctSolutions(c.draw(), c.target()).size();
+         System.out.printf("%s %d: %d multiset, %d distinct%s%n", c.draw(), c.target(),
+                           multiset, distinct, multiset == distinct ? "" : "  MISMATCH");
+         ok &= multiset == distinct;
+      }
+      return ok;
+   }
+
    // Delete the old main method and replace with enhanced version
    public static void main(String[] args) {
+      if (args.length == 2 && args[0].equals("--build-index")) {
+         try {
+            var file = Path.of(args[1]);
+            SolvabilityIndex.build(file);
+            try (var index = SolvabilityIndex.open(file)) {
+               System.out.printf("Indexed %d standard draws in %s%n", index.size(), file);
+            }
+         } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+         }
+         return;
+      }
+
+      if (args.length == 1 && args[0].equals("--check")) {
+         if (!checkCanonical()) {
+            System.exit(1);
+         }
+         return;
+      }
+
+      // --distinct keeps one solution per canonical form
+      var distinctOnly = args.length == 3 && args[2].equals("--distinct");
+      if (distinctOnly) {
+         args = Arrays.copyOf(args, 2);
+      }
+
+      // --simplest <k> stops at the k solutions using the fewest numbers
+      var simplest = 0;
+      if (args.length == 4 && args[2].equals("--simplest")) {
+         try {
+            simplest = Integer.parseInt(args[3]);
+         } catch (NumberFormatException e) {
+            System.err.println("Error: Invalid solution count");
+            return;
+         }
+         args = Arrays.copyOf(args, 2);
+      }
+
       if (args.length != 2) {
-         System.err.println("Usage: java CountDownProblem <comma-separated-numbers> <target>");
-         System.err.println("Example: java CountDownProblem 1,3,7,10,25,50 765");
+         System.err.println("Usage: java countdown.CountDownProblem <comma-separated-numbers> <target>[,<target>...] [--distinct | --simplest <k>]");
+         System.err.println("       java countdown.CountDownProblem --build-index <file>");
+         System.err.println("       java countdown.CountDownProblem --check");
+         System.err.println("Example: java countdown.CountDownProblem 1,3,7,10,25,50 765");
          return;
       }
 
@@ -443,10 +1403,6 @@ class CountDownProblem {
             throw new IllegalArgumentException("No valid numbers provided");
          }
          
-         if (!allUnique(numbers)) {
-            throw new IllegalArgumentException("Duplicate numbers are not allowed");
-         }
-         
          if (numbers.size() > 6) {
             throw new IllegalArgumentException("Maximum 6 numbers allowed");
          }
@@ -458,6 +1414,44 @@ class CountDownProblem {
          return;
       }
 
+      // several targets: answer them all from one reachability pass
+      if (args[1].contains(",")) {
+         List<Integer> targets;
+         try {
+            targets = Stream.of(args[1].split(","))
+                           .map(String::trim)
+                           .filter(s -> !s.isEmpty())
+                           .map(Integer::parseInt)
+                           .toList();
+         } catch (NumberFormatException e) {
+            System.err.println("Error: Invalid target number format");
+            return;
+         }
+         if (distinctOnly) {
+            System.err.println("Error: --distinct needs a single target");
+            return;
+         }
+         System.out.printf("Checking %d targets using numbers %s...%n", targets.size(), numbers);
+         var reachable = solvable(numbers, targets);
+         if (simplest > 0) {
+            // one solver for every target, so its memo tables are shared
+            var solver = new MultisetSolver(numbers);
+            for (var t : reachable.keySet()) {
+               if (!reachable.get(t)) {
+                  System.out.printf("  %d: unreachable%n", t);
+                  continue;
+               }
+               var found = solver.simplestSolutions(t).limit(simplest).toList();
+               System.out.printf("  %d: %d simplest solutions%n", t, found.size());
+               found.forEach(solution -> System.out.println("    " + solution));
+            }
+            return;
+         }
+         reachable.forEach((t, ok) ->
+            System.out.printf("  %d: %s%n", t, ok ? "solvable" : "unreachable"));
+         return;
+      }
+
       int target;
       try {
          target = Integer.parseInt(args[1]);
@@ -475,21 +1469,56 @@ class CountDownProblem {
       System.out.printf("Finding solutions for target %d using numbers %s...%n", 
                         target, numbers);
 
-      var solutions = solutions(numbers, target).toList();
-      if (solutions.isEmpty()) {
-         System.out.println("No solutions found.");
+      if (simplest > 0) {
+         var found = simplestSolutions(numbers, target).limit(simplest).toList();
+         if (!found.isEmpty()) {
+            System.out.printf("%nFound %d simplest solutions:%n", found.size());
+            found.forEach(solution -> System.out.println("  " + solution));
+            return;
+         }
+         // nothing exact; fall through to the closest-match search
+      }
+
+      // repeated numbers go through the multiset solver, which enumerates
+      // each distinct sub-multiset and split once
+      var nearest = allUnique(numbers) ?
+         nearestSolutions(numbers, target) :
+         nearestMultisetSolutions(numbers, target);
+      if (distinctOnly) {
+         nearest = new Nearest(nearest.distance(), distinct(nearest.exprs().stream()));
+      }
+      if (!nearest.isExact()) {
+         if (nearest.exprs().isEmpty()) {
+            System.out.println("No solutions found.");
+         } else {
+            System.out.printf("%nNo exact solutions. Found %d solutions %d away:%n",
+                              nearest.exprs().size(), nearest.distance());
+            nearest.exprs().forEach(expr ->
+               System.out.println("  " + expr + " = " + eval(expr).getAsInt()));
+         }
       } else {
+         var solutions = nearest.exprs();
          System.out.printf("%nFound %d solutions:%n", solutions.size());
          solutions.forEach(solution -> System.out.println("  " + solution));
 
+         // statistics are computed once and shared by both reports
+         var stats = analyzeSolutions(solutions.stream());
+
          System.out.println("\nDetailed Analysis:");
-         var analyzer = new ExpressionAnalyzer(solutions);
+         var opStats = INSTRUMENT ?
+            OperatorStatistics.from(SolverMetrics.INSTANCE.snapshot()) :
+            new OperatorStatistics();
+         var analyzer = new ExpressionAnalyzer(stats, opStats);
          System.out.println(analyzer);
 
-         var stats = analyzeSolutions(solutions.stream());
          System.out.println("\nSolution Statistics:");
          stats.forEach(stat -> System.out.println("  " + stat));
       }
+
+      if (INSTRUMENT) {
+         System.out.println();
+         System.out.println(SolverMetrics.INSTANCE.snapshot());
+      }
    }
 }
 
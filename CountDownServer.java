@@ -0,0 +1,428 @@
+package countdown;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Resident CountDown solver. Keeps one JVM, and its JIT-compiled solver,
+ * running across many puzzles instead of paying startup for each one.
+ *
+ * Requests are one line each, on stdin or on a loopback socket:
+ *
+ *   <numbers> <target> [limit=<k>] [budget=<ms>] [id=<id>]
+ *   1,3,7,10,25,50 765 limit=3 budget=200 id=q1
+ *
+ * and every request gets one JSON line back, in completion order:
+ *
+ *   {"id":"q1","status":"exact","distance":0,"solutions":["(25-10)*(1+50)"],"micros":812}
+ *
+ * status is exact, nearest (no exact answer; solutions are the closest),
+ * none, timeout (budget used up; solutions holds what was found) or error.
+ * Each request waits on its own virtual thread while the search runs on
+ * a per-core solver pool. Solvers for recently seen draws are cached with
+ * their memo tables, so repeated draws start warm.
+ *
+ * Usage: java countdown.CountDownServer [--port <p>] [--index <file>] [--cache <draws>]
+ *        java countdown.CountDownServer --benchmark <puzzles> [--index <file>]
+ */
+class CountDownServer implements AutoCloseable {
+
+   static final int DEFAULT_LIMIT = 1;
+   static final long DEFAULT_BUDGET_MILLIS = 1_000;
+
+   record Request(String id, List<Integer> numbers, int target, int limit, long budgetMillis) {}
+
+   // distance is -1 and error null where they do not apply
+   record Response(String id, String status, int distance, List<String> solutions, String error, long micros) {
+      static Response error(String id, String message, long micros) {
+         return new Response(id, "error", -1, List.of(), message, micros);
+      }
+
+      String toJson() {
+         return "{\"id\":" + quote(id) +
+                ",\"status\":" + quote(status) +
+                (error != null ? ",\"error\":" + quote(error) : "") +
+                (distance >= 0 ? ",\"distance\":" + distance : "") +
+                ",\"solutions\":" + solutions.stream().map(CountDownServer::quote)
+                                             .collect(Collectors.joining(",", "[", "]")) +
+                ",\"micros\":" + micros + "}";
+      }
+   }
+
+   // A cached solver and the lock that serializes searches on its memo tables
+   static final class WarmSolver {
+      final CountDownProblem.MultisetSolver solver;
+      final ReentrantLock lock = new ReentrantLock();
+
+      WarmSolver(List<Integer> draw) {
+         this.solver = new CountDownProblem.MultisetSolver(draw);
+      }
+   }
+
+   private final Map<String, WarmSolver> solvers;
+   private final CountDownProblem.SolvabilityIndex index;
+   // searches are CPU-bound, so they run on one platform thread per core;
+   // requests wait on virtual threads and can always time out on schedule
+   private final ExecutorService workers = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), runnable -> {
+         var thread = new Thread(runnable, "countdown-solver");
+         thread.setDaemon(true);
+         return thread;
+      });
+
+   CountDownServer(int cachedDraws, CountDownProblem.SolvabilityIndex index) {
+      // least recently used draws are dropped first
+      this.solvers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, WarmSolver> eldest) {
+            return size() > cachedDraws;
+         }
+      });
+      this.index = index;
+   }
+
+   private WarmSolver solverFor(List<Integer> numbers) {
+      var draw = numbers.stream().sorted().toList();
+      return solvers.computeIfAbsent(draw.toString(), k -> new WarmSolver(draw));
+   }
+
+   // Request parsing
+
+   static Request parse(String line) {
+      var tokens = line.trim().split("\\s+");
+      if (tokens.length < 2) {
+         throw new IllegalArgumentException("Expected: <numbers> <target> [limit=<k>] [budget=<ms>] [id=<id>]");
+      }
+      List<Integer> numbers;
+      int target;
+      try {
+         numbers = Stream.of(tokens[0].split(","))
+                         .map(String::trim)
+                         .filter(s -> !s.isEmpty())
+                         .map(Integer::parseInt)
+                         .toList();
+         target = Integer.parseInt(tokens[1]);
+      } catch (NumberFormatException e) {
+         throw new IllegalArgumentException("Invalid number format");
+      }
+      if (numbers.isEmpty() || numbers.size() > 6) {
+         throw new IllegalArgumentException("Between 1 and 6 numbers allowed");
+      }
+      if (!CountDownProblem.isValidTarget(target)) {
+         throw new IllegalArgumentException("Target must be between 1 and 999");
+      }
+
+      var id = "";
+      var limit = DEFAULT_LIMIT;
+      var budget = DEFAULT_BUDGET_MILLIS;
+      for (int i = 2; i < tokens.length; i++) {
+         var option = tokens[i].split("=", 2);
+         if (option.length != 2) {
+            throw new IllegalArgumentException("Invalid option: " + tokens[i]);
+         }
+         try {
+            switch (option[0]) {
+               case "id" -> id = option[1];
+               case "limit" -> limit = Math.max(1, Integer.parseInt(option[1]));
+               case "budget" -> budget = Math.max(1, Long.parseLong(option[1]));
+               default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+            }
+         } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + option[0]);
+         }
+      }
+      return new Request(id, numbers, target, limit, budget);
+   }
+
+   // Solving
+
+   // Answers one request line; never throws, errors become error responses
+   Response handle(String line) {
+      var start = System.nanoTime();
+      Request request;
+      try {
+         request = parse(line);
+      } catch (IllegalArgumentException e) {
+         return Response.error(idOf(line), e.getMessage(), micros(start));
+      }
+
+      var stop = new AtomicBoolean();
+      var found = Collections.synchronizedList(new ArrayList<String>());
+      Future<Response> search;
+      try {
+         search = workers.submit(() -> solve(request, stop, found, start));
+      } catch (RejectedExecutionException e) {
+         return Response.error(request.id(), "server closed", micros(start));
+      }
+      try {
+         return search.get(request.budgetMillis(), TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+         // the search notices stop before its next split, and a request
+         // still queued or waiting for its draw's lock is dropped
+         stop.set(true);
+         search.cancel(true);
+         return new Response(request.id(), "timeout", -1, List.copyOf(found), null, micros(start));
+      } catch (ExecutionException e) {
+         return Response.error(request.id(), String.valueOf(e.getCause()), micros(start));
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         stop.set(true);
+         search.cancel(true);
+         return Response.error(request.id(), "interrupted", micros(start));
+      }
+   }
+
+   private Response solve(Request request, AtomicBoolean stop, List<String> found, long start) {
+      var warm = solverFor(request.numbers());
+      try {
+         warm.lock.lockInterruptibly();
+      } catch (InterruptedException e) {
+         // cancelled while another search held this draw
+         return new Response(request.id(), "timeout", -1, List.of(), null, micros(start));
+      }
+      try {
+         // the index rules out unreachable targets without a search
+         if (reachable(request.numbers(), request.target())) {
+            warm.solver.simplestSolutions(request.target(), stop::get)
+                       .limit(request.limit())
+                       .forEach(expr -> found.add(expr.toString()));
+            if (!found.isEmpty()) {
+               return new Response(request.id(), "exact", 0, List.copyOf(found), null, micros(start));
+            }
+         }
+         if (stop.get()) {
+            return new Response(request.id(), "timeout", -1, List.of(), null, micros(start));
+         }
+         var nearest = warm.solver.nearest(request.target(), stop::get);
+         if (nearest.exprs().isEmpty()) {
+            return new Response(request.id(), "none", -1, List.of(), null, micros(start));
+         }
+         var closest = nearest.exprs().stream().limit(request.limit()).map(Object::toString).toList();
+         return new Response(request.id(), "nearest", nearest.distance(), closest, null, micros(start));
+      } catch (CancellationException e) {
+         return new Response(request.id(), "timeout", -1, List.copyOf(found), null, micros(start));
+      } finally {
+         warm.lock.unlock();
+      }
+   }
+
+   private boolean reachable(List<Integer> numbers, int target) {
+      if (index == null) {
+         return true;
+      }
+      try {
+         return index.isSolvable(numbers, target);
+      } catch (IllegalArgumentException e) {
+         // not a standard draw; only a search can tell
+         return true;
+      }
+   }
+
+   // Transports
+
+   // Reads requests until end of input; each is answered on its own
+   // virtual thread, and the method returns once all have been answered
+   void serve(Reader input, Writer output) throws IOException {
+      var in = new BufferedReader(input);
+      var out = new PrintWriter(output, true);
+      try (var requests = Executors.newVirtualThreadPerTaskExecutor()) {
+         String line;
+         while ((line = in.readLine()) != null) {
+            if (line.isBlank()) continue;
+            var request = line;
+            requests.submit(() -> {
+               var json = handle(request).toJson();
+               synchronized (out) {
+                  out.println(json);
+               }
+            });
+         }
+      }
+   }
+
+   // One virtual thread per connection, bound to the loopback interface only
+   void listen(int port) throws IOException {
+      try (var server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+         System.err.printf("CountDown server listening on %s:%d%n",
+                           server.getInetAddress().getHostAddress(), server.getLocalPort());
+         while (true) {
+            var socket = server.accept();
+            Thread.ofVirtual().name("countdown-connection").start(() -> connection(socket));
+         }
+      }
+   }
+
+   private void connection(Socket socket) {
+      try (socket) {
+         serve(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8),
+               new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8));
+      } catch (IOException e) {
+         System.err.println("Connection closed: " + e.getMessage());
+      }
+   }
+
+   // Throughput
+
+   // Standard draws from a fixed seed, with 8 targets per draw, so the warm
+   // caches get some reuse as they would with real traffic
+   static List<String> puzzles(int count) {
+      var random = new Random(765);
+      var puzzles = new ArrayList<String>(count);
+      List<Integer> draw = List.of();
+      for (int i = 0; i < count; i++) {
+         if (i % 8 == 0) {
+            var large = new ArrayList<Integer>();
+            for (int n : CountDownProblem.SolvabilityIndex.LARGE) large.add(n);
+            var small = new ArrayList<Integer>();
+            for (int n : CountDownProblem.SolvabilityIndex.SMALL) {
+               small.add(n);
+               small.add(n);
+            }
+            Collections.shuffle(large, random);
+            Collections.shuffle(small, random);
+            var bigs = random.nextInt(5);
+            var numbers = new ArrayList<>(large.subList(0, bigs));
+            numbers.addAll(small.subList(0, 6 - bigs));
+            draw = numbers;
+         }
+         puzzles.add(draw.stream().map(String::valueOf).collect(Collectors.joining(",")) +
+                     " " + (100 + random.nextInt(900)) + " id=p" + i);
+      }
+      return puzzles;
+   }
+
+   // puzzles/s with one puzzle at a time, then with all of them in flight
+   void benchmark(int count) throws InterruptedException {
+      var puzzles = puzzles(count);
+      // warm-up pass so both measurements see a compiled solver
+      puzzles.subList(0, Math.min(count, 64)).forEach(this::handle);
+      solvers.clear();
+
+      var start = System.nanoTime();
+      var statuses = new LinkedHashMap<String, Integer>();
+      for (var puzzle : puzzles) {
+         statuses.merge(handle(puzzle).status(), 1, Integer::sum);
+      }
+      var sequential = (System.nanoTime() - start) / 1e9;
+      System.out.printf("sequential: %,d puzzles in %.2f s, %.1f puzzles/s %s%n",
+                        count, sequential, count / sequential, statuses);
+
+      solvers.clear();
+      start = System.nanoTime();
+      try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+         puzzles.forEach(puzzle -> clients.submit(() -> handle(puzzle)));
+      }
+      var concurrent = (System.nanoTime() - start) / 1e9;
+      System.out.printf("concurrent: %,d puzzles in %.2f s, %.1f puzzles/s%n",
+                        count, concurrent, count / concurrent);
+   }
+
+   // Stops the solver threads. Searches still running are abandoned; their
+   // requests answer with a timeout when their budget runs out.
+   @Override
+   public void close() {
+      workers.shutdownNow();
+   }
+
+   // Helpers
+
+   private static long micros(long start) {
+      return (System.nanoTime() - start) / 1_000;
+   }
+
+   private static String idOf(String line) {
+      for (var token : line.trim().split("\\s+")) {
+         if (token.startsWith("id=")) {
+            return token.substring(3);
+         }
+      }
+      return "";
+   }
+
+   static String quote(String s) {
+      var sb = new StringBuilder("\"");
+      for (char c : s.toCharArray()) {
+         switch (c) {
+            case '"' -> sb.append("\\\"");
+            case '\\' -> sb.append("\\\\");
+            case '\n' -> sb.append("\\n");
+            default -> {
+               if (c < 0x20) {
+                  sb.append(String.format("\\u%04x", (int) c));
+               } else {
+                  sb.append(c);
+               }
+            }
+         }
+      }
+      return sb.append('"').toString();
+   }
+
+   private static void usage() {
+      System.err.println("Usage: java countdown.CountDownServer [--port <p>] [--index <file>] [--cache <draws>]");
+      System.err.println("       java countdown.CountDownServer --benchmark <puzzles> [--index <file>]");
+   }
+
+   public static void main(String[] args) throws Exception {
+      var port = -1;
+      var benchmark = 0;
+      var cachedDraws = 64;
+      Path indexFile = null;
+      for (int i = 0; i < args.length; i += 2) {
+         // every option takes a value
+         if (i + 1 == args.length) {
+            usage();
+            return;
+         }
+         switch (args[i]) {
+            case "--port" -> port = Integer.parseInt(args[i + 1]);
+            case "--benchmark" -> benchmark = Integer.parseInt(args[i + 1]);
+            case "--cache" -> cachedDraws = Integer.parseInt(args[i + 1]);
+            case "--index" -> indexFile = Path.of(args[i + 1]);
+            default -> {
+               usage();
+               return;
+            }
+         }
+      }
+
+      try (var index = indexFile == null ? null : CountDownProblem.SolvabilityIndex.open(indexFile);
+           var server = new CountDownServer(cachedDraws, index)) {
+         if (benchmark > 0) {
+            server.benchmark(benchmark);
+         } else if (port >= 0) {
+            server.listen(port);
+         } else {
+            server.serve(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                         new PrintWriter(System.out, true, StandardCharsets.UTF_8));
+         }
+      }
+   }
+}
@@ -0,0 +1,290 @@
+package library;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import library.LibraryManagementSystem.*;
+
+/**
+ * Lending Archive
+ * Closed lending records kept on disk, so that an engine can start from
+ * the catalog, the members and the open loans alone. Every record is
+ * stored twice, once grouped by member and once grouped by the day it was
+ * closed. Opening the archive reads only the block directory. A block is
+ * read the first time a query needs it and kept in a small LRU cache.
+ *
+ * File layout:
+ *   int magic, int version
+ *   member blocks, then closing-day blocks
+ *   directory: max loan days, max due days, member entries, day entries
+ *   long directory offset
+ */
+public class LendingArchive implements AutoCloseable {
+    private static final int MAGIC = 0x4c415243; // "LARC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int DEFAULT_CACHE_BLOCKS = 64;
+
+    // where one block of encoded records lives in the file
+    private record Block(long offset, int length, int count) {}
+
+    private final FileChannel channel;
+    private final Function<String, Book> books;
+    private final Function<String, Member> members;
+    private final Map<String, Block> memberBlocks = new HashMap<>();
+    private final NavigableMap<Integer, Block> dayBlocks = new TreeMap<>();
+    // longest time from borrow to close, and from borrow to due
+    private final int maxLoanDays;
+    private final int maxDueDays;
+    private final Map<String, List<LendingRecord>> cache;
+    // every record by member, once something has asked for all of them
+    private volatile Map<String, List<LendingRecord>> all;
+
+    private LendingArchive(FileChannel channel, Function<String, Book> books,
+                           Function<String, Member> members, int cacheBlocks) throws IOException {
+        this.channel = channel;
+        this.books = books;
+        this.members = members;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<LendingRecord>> eldest) {
+                return size() > cacheBlocks;
+            }
+        };
+
+        DataInputStream header = read(0, HEADER_SIZE);
+        if (header.readInt() != MAGIC || header.readInt() != VERSION) {
+            throw new IOException("Not a lending archive");
+        }
+        long end = channel.size() - Long.BYTES;
+        long directoryOffset = read(end, Long.BYTES).readLong();
+        DataInputStream directory = read(directoryOffset, (int) (end - directoryOffset));
+        this.maxLoanDays = directory.readInt();
+        this.maxDueDays = directory.readInt();
+        for (int i = directory.readInt(); i > 0; i--) {
+            memberBlocks.put(directory.readUTF(), readBlock(directory));
+        }
+        for (int i = directory.readInt(); i > 0; i--) {
+            dayBlocks.put(directory.readInt(), readBlock(directory));
+        }
+    }
+
+    // Opens an archive; ISBNs and member IDs are resolved through the
+    // engine's catalog as records are paged in
+    public static LendingArchive open(Path file, Function<String, Book> books,
+                                      Function<String, Member> members) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new LendingArchive(channel, books, members, DEFAULT_CACHE_BLOCKS);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Writes closed records to a new archive, replacing any existing file
+    public static void write(Path file, Collection<LendingRecord> records) throws IOException {
+        Map<String, List<LendingRecord>> byMember = new TreeMap<>();
+        NavigableMap<Integer, List<LendingRecord>> byDay = new TreeMap<>();
+        int maxLoanDays = 0;
+        int maxDueDays = 0;
+        for (LendingRecord record : records) {
+            byMember.computeIfAbsent(record.getMember().getMemberId(), k -> new ArrayList<>()).add(record);
+            byDay.computeIfAbsent(closedDay(record), k -> new ArrayList<>()).add(record);
+            int borrowed = (int) record.getBorrowDate().toEpochDay();
+            maxLoanDays = Math.max(maxLoanDays, closedDay(record) - borrowed);
+            maxDueDays = Math.max(maxDueDays, (int) record.getDueDate().toEpochDay() - borrowed);
+        }
+        // member blocks are in borrow order, like lendingHistory
+        byMember.values().forEach(history -> history.sort(Comparator.comparing(LendingRecord::getBorrowDate)));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            long offset = HEADER_SIZE;
+
+            Map<String, Block> memberBlocks = new LinkedHashMap<>();
+            for (Map.Entry<String, List<LendingRecord>> entry : byMember.entrySet()) {
+                byte[] block = encode(entry.getValue());
+                out.write(block);
+                memberBlocks.put(entry.getKey(), new Block(offset, block.length, entry.getValue().size()));
+                offset += block.length;
+            }
+            Map<Integer, Block> dayBlocks = new LinkedHashMap<>();
+            for (Map.Entry<Integer, List<LendingRecord>> entry : byDay.entrySet()) {
+                byte[] block = encode(entry.getValue());
+                out.write(block);
+                dayBlocks.put(entry.getKey(), new Block(offset, block.length, entry.getValue().size()));
+                offset += block.length;
+            }
+
+            out.writeInt(maxLoanDays);
+            out.writeInt(maxDueDays);
+            out.writeInt(memberBlocks.size());
+            for (Map.Entry<String, Block> entry : memberBlocks.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeBlock(out, entry.getValue());
+            }
+            out.writeInt(dayBlocks.size());
+            for (Map.Entry<Integer, Block> entry : dayBlocks.entrySet()) {
+                out.writeInt(entry.getKey());
+                writeBlock(out, entry.getValue());
+            }
+            out.writeLong(offset);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Queries
+
+    // a member's archived loans in borrow order
+    public List<LendingRecord> memberHistory(String memberId) {
+        Map<String, List<LendingRecord>> loaded = all;
+        if (loaded != null) {
+            return loaded.getOrDefault(memberId, List.of());
+        }
+        Block block = memberBlocks.get(memberId);
+        return block == null ? List.of() : cached("member:" + memberId, block);
+    }
+
+    // the ranges below are inclusive on both ends
+    public List<LendingRecord> returnedBetween(LocalDate from, LocalDate to) {
+        return closedBetween((int) from.toEpochDay(), (int) to.toEpochDay(),
+                             record -> record.getReturnDate() != null);
+    }
+
+    // a loan borrowed in the range was closed at most maxLoanDays later
+    public List<LendingRecord> borrowedBetween(LocalDate from, LocalDate to) {
+        return closedBetween((int) from.toEpochDay(), (int) to.toEpochDay() + maxLoanDays,
+                             record -> within(record.getBorrowDate(), from, to));
+    }
+
+    public List<LendingRecord> dueBetween(LocalDate from, LocalDate to) {
+        return closedBetween((int) from.toEpochDay() - maxDueDays, (int) to.toEpochDay() + maxLoanDays,
+                             record -> within(record.getDueDate(), from, to));
+    }
+
+    // Every archived record by member. The archive never changes once
+    // written, so the records are decoded on the first call only and the
+    // same unmodifiable map is returned from then on.
+    public synchronized Map<String, List<LendingRecord>> readAll() {
+        if (all == null) {
+            Map<String, List<LendingRecord>> loaded = new HashMap<>();
+            memberBlocks.forEach((memberId, block) ->
+                loaded.put(memberId, Collections.unmodifiableList(load(block))));
+            all = Collections.unmodifiableMap(loaded);
+        }
+        return all;
+    }
+
+    public int getRecordCount() {
+        return memberBlocks.values().stream().mapToInt(Block::count).sum();
+    }
+
+    private List<LendingRecord> closedBetween(int fromDay, int toDay, Predicate<LendingRecord> filter) {
+        List<LendingRecord> result = new ArrayList<>();
+        for (Map.Entry<Integer, Block> entry : dayBlocks.subMap(fromDay, true, toDay, true).entrySet()) {
+            for (LendingRecord record : cached("day:" + entry.getKey(), entry.getValue())) {
+                if (filter.test(record)) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized List<LendingRecord> cached(String key, Block block) {
+        List<LendingRecord> records = cache.get(key);
+        if (records == null) {
+            records = Collections.unmodifiableList(load(block));
+            cache.put(key, records);
+        }
+        return records;
+    }
+
+    private List<LendingRecord> load(Block block) {
+        try {
+            DataInputStream in = read(block.offset(), block.length());
+            List<LendingRecord> records = new ArrayList<>(block.count());
+            for (int i = 0; i < block.count(); i++) {
+                records.add(readRecord(in));
+            }
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read lending archive", e);
+        }
+    }
+
+    // positional read, safe to run from several threads at once
+    private DataInputStream read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Truncated lending archive");
+            }
+        }
+        return new DataInputStream(new ByteArrayInputStream(buffer.array()));
+    }
+
+    // Encoding
+
+    private static byte[] encode(List<LendingRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (LendingRecord record : records) {
+            out.writeUTF(record.getRecordId());
+            out.writeUTF(record.getBook().getIsbn());
+            out.writeUTF(record.getMember().getMemberId());
+            out.writeInt((int) record.getBorrowDate().toEpochDay());
+            out.writeInt((int) record.getDueDate().toEpochDay());
+            out.writeInt(record.getReturnDate() == null ? NO_DATE : (int) record.getReturnDate().toEpochDay());
+            out.writeByte(record.getStatus().ordinal());
+        }
+        return bytes.toByteArray();
+    }
+
+    private LendingRecord readRecord(DataInputStream in) throws IOException {
+        String recordId = in.readUTF();
+        Book book = books.apply(in.readUTF());
+        Member member = members.apply(in.readUTF());
+        LocalDate borrowDate = LocalDate.ofEpochDay(in.readInt());
+        LocalDate dueDate = LocalDate.ofEpochDay(in.readInt());
+        int returned = in.readInt();
+        LocalDate returnDate = returned == NO_DATE ? null : LocalDate.ofEpochDay(returned);
+        Status status = Status.values()[in.readByte()];
+        return new LendingRecord(recordId, book, member, borrowDate, dueDate, returnDate, status);
+    }
+
+    private static void writeBlock(DataOutputStream out, Block block) throws IOException {
+        out.writeLong(block.offset());
+        out.writeInt(block.length());
+        out.writeInt(block.count());
+    }
+
+    private static Block readBlock(DataInputStream in) throws IOException {
+        return new Block(in.readLong(), in.readInt(), in.readInt());
+    }
+
+    // lost or damaged copies may have no return date; file them by due date
+    private static int closedDay(LendingRecord record) {
+        LocalDate closed = record.getReturnDate() != null ? record.getReturnDate() : record.getDueDate();
+        return (int) closed.toEpochDay();
+    }
+
+    private static boolean within(LocalDate date, LocalDate from, LocalDate to) {
+        return !date.isBefore(from) && !date.isAfter(to);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,193 @@
+package library;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import library.LibraryManagementSystem.LendingRecord;
+
+/**
+ * Lending Event Bus
+ * A single-producer, multi-consumer ring buffer in the style of the LMAX
+ * Disruptor. Event slots are allocated once up front and reused, so
+ * publishing from lendBook/returnBook allocates nothing and never takes a
+ * lock. Each subscriber runs on its own thread and sees every event, in
+ * batches of whatever has been published since it last caught up.
+ *
+ * One engine publishes to a bus; publish must not be called concurrently.
+ * Once the bus is closed, publish drops its events, so an engine that
+ * still has the bus attached never waits on consumers that have gone.
+ */
+public class LendingEventBus implements AutoCloseable {
+
+    public enum EventType {
+        LENT, RETURNED, FINE_ISSUED
+    }
+
+    // Preallocated, reused slot; only valid inside EventHandler.onEvent
+    public static final class LendingEvent {
+        private EventType type;
+        private LendingRecord record;
+        private long timestamp;
+
+        public EventType getType() { return type; }
+        public LendingRecord getRecord() { return record; }
+        public long getTimestamp() { return timestamp; }
+    }
+
+    public interface EventHandler {
+        void onEvent(LendingEvent event, long sequence, boolean endOfBatch) throws Exception;
+    }
+
+    // How a producer waiting for space, or a consumer waiting for events, idles
+    public enum WaitStrategy {
+        // lowest latency, burns a core per consumer
+        BUSY_SPIN {
+            @Override
+            void idle(int attempt) {
+                Thread.onSpinWait();
+            }
+        },
+        // spins briefly, then yields the core to other threads
+        YIELDING {
+            @Override
+            void idle(int attempt) {
+                if (attempt < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        },
+        // spins, yields, then parks; near-zero CPU when the desk is quiet
+        SLEEPING {
+            @Override
+            void idle(int attempt) {
+                if (attempt < 100) {
+                    Thread.onSpinWait();
+                } else if (attempt < 200) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(100_000);
+                }
+            }
+        };
+
+        abstract void idle(int attempt);
+    }
+
+    private final LendingEvent[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    // highest published sequence
+    private final AtomicLong cursor = new AtomicLong(-1);
+    // consumer sequences the producer must not lap; replaced on subscribe
+    private volatile AtomicLong[] gates = new AtomicLong[0];
+    private final List<Thread> consumers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    // producer-only state
+    private long next = -1;
+    private long cachedGate = -1;
+
+    public LendingEventBus(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.slots = new LendingEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new LendingEvent();
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    // Starts a consumer thread that receives events published from now on
+    public synchronized void subscribe(String name, EventHandler handler) {
+        AtomicLong sequence = new AtomicLong(cursor.get());
+        AtomicLong[] updated = Arrays.copyOf(gates, gates.length + 1);
+        updated[gates.length] = sequence;
+        gates = updated;
+
+        Thread thread = new Thread(() -> consume(sequence, handler), "lending-events-" + name);
+        thread.setDaemon(true);
+        consumers.add(thread);
+        thread.start();
+    }
+
+    public void publish(EventType type, LendingRecord record) {
+        if (!running) return;
+        long sequence = next + 1;
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > cachedGate) {
+            long gate;
+            int attempt = 0;
+            while (wrapPoint > (gate = minimumGate())) {
+                if (!running) return;
+                waitStrategy.idle(attempt++);
+            }
+            cachedGate = gate;
+        }
+
+        LendingEvent event = slots[(int) sequence & mask];
+        event.type = type;
+        event.record = record;
+        event.timestamp = System.nanoTime();
+
+        next = sequence;
+        cursor.lazySet(sequence);
+    }
+
+    private long minimumGate() {
+        AtomicLong[] current = gates;
+        long min = Long.MAX_VALUE;
+        for (AtomicLong gate : current) {
+            min = Math.min(min, gate.get());
+        }
+        return min;
+    }
+
+    private void consume(AtomicLong sequence, EventHandler handler) {
+        long nextSequence = sequence.get() + 1;
+        int attempt = 0;
+        // keep draining after close until everything published has been seen
+        while (running || nextSequence <= cursor.get()) {
+            long available = cursor.get();
+            if (available < nextSequence) {
+                waitStrategy.idle(attempt++);
+                continue;
+            }
+            attempt = 0;
+            for (long s = nextSequence; s <= available; s++) {
+                try {
+                    handler.onEvent(slots[(int) s & mask], s, s == available);
+                } catch (Exception e) {
+                    System.err.println("Lending event handler failed at " + s + ": " + e);
+                }
+            }
+            sequence.lazySet(available);
+            nextSequence = available + 1;
+        }
+    }
+
+    public long getPublishedCount() {
+        return cursor.get() + 1;
+    }
+
+    // Stops the consumers once they have processed every published event.
+    // If the caller is interrupted it stops waiting for them and keeps its
+    // interrupt status; the consumers still finish draining on their own.
+    @Override
+    public synchronized void close() {
+        running = false;
+        for (Thread consumer : consumers) {
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package library;
+
+import java.time.Clock;
+
+/**
+ * Lending Rollups
+ * Fixed-memory time series of lending activity for capacity planning.
+ * Each event is counted at three resolutions, per minute (last 2 hours),
+ * per hour (last 7 days) and per day (last 90 days), in ring buffers that
+ * reuse a bucket once it falls out of its window. Loan durations go into
+ * a per-day log-scale histogram for percentiles. Memory does not grow with
+ * history. Every ring keeps running totals, so a window total or a
+ * percentile costs the same however many buckets it spans.
+ */
+public class LendingRollups {
+
+    public enum Metric {
+        LOANS, RETURNS, OVERDUES, FINES
+    }
+
+    public enum Resolution {
+        MINUTE(60_000L, 120),
+        HOUR(3_600_000L, 24 * 7),
+        DAY(86_400_000L, 90);
+
+        final long millis;
+        final int buckets;
+
+        Resolution(long millis, int buckets) {
+            this.millis = millis;
+            this.buckets = buckets;
+        }
+    }
+
+    private final Clock clock;
+    private final Window[] windows;
+    // loan durations by day, one row per DurationSketch bucket
+    private final Window durations;
+
+    public LendingRollups() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public LendingRollups(Clock clock) {
+        this.clock = clock;
+        Resolution[] resolutions = Resolution.values();
+        this.windows = new Window[resolutions.length];
+        for (Resolution resolution : resolutions) {
+            windows[resolution.ordinal()] = new Window(resolution, Metric.values().length);
+        }
+        this.durations = new Window(Resolution.DAY, DurationSketch.BUCKETS);
+    }
+
+    // Window Class
+    // Ring of buckets over consecutive periods, with one row per counted
+    // thing. Instead of per-bucket counts it keeps each row's running total
+    // and, per bucket, the running total when that bucket's period began,
+    // so any run of recent buckets sums to one subtraction. Advancing to a
+    // new period stamps the buckets it passes, at most one lap of the ring.
+    static class Window {
+        final Resolution resolution;
+        final long[] totals;
+        final long[][] starts;
+        // first and latest period the ring has seen; none until the first event
+        long first;
+        long current;
+        boolean started;
+
+        Window(Resolution resolution, int rows) {
+            this.resolution = resolution;
+            this.totals = new long[rows];
+            this.starts = new long[rows][resolution.buckets];
+        }
+
+        int index(long period) {
+            return (int) Math.floorMod(period, (long) resolution.buckets);
+        }
+
+        // a clock that steps back counts into the current period
+        void advance(long period) {
+            if (!started) {
+                first = current = period;
+                started = true;
+                return;
+            }
+            if (period <= current) return;
+            for (long p = Math.max(current + 1, period - resolution.buckets + 1); p <= period; p++) {
+                int index = index(p);
+                for (int row = 0; row < totals.length; row++) {
+                    starts[row][index] = totals[row];
+                }
+            }
+            current = period;
+        }
+
+        void add(int row, long delta) {
+            totals[row] += delta;
+        }
+
+        long count(int row, long period) {
+            if (!started || period > current || period < first || period <= current - resolution.buckets) {
+                return 0;
+            }
+            long end = period == current ? totals[row] : starts[row][index(period + 1)];
+            return end - starts[row][index(period)];
+        }
+
+        // the last n periods up to and including the current one
+        long total(int row, int n) {
+            if (!started || n <= 0) return 0;
+            long from = Math.max(current - Math.min(n, resolution.buckets) + 1, first);
+            return totals[row] - starts[row][index(from)];
+        }
+    }
+
+    // DurationSketch Class
+    // Log-linear bucketing of loan durations in days: exact below 16 days,
+    // then four sub-buckets per power of two, so any percentile is within
+    // 25% of the true value.
+    static final class DurationSketch {
+        private static final int EXACT = 16;
+        static final int BUCKETS = EXACT + 4 * 27;
+
+        private DurationSketch() {}
+
+        static int index(long days) {
+            if (days < EXACT) return (int) days;
+            int log = 63 - Long.numberOfLeadingZeros(days);
+            int sub = (int) (days >>> (log - 2)) & 3;
+            return Math.min(EXACT + (log - 4) * 4 + sub, BUCKETS - 1);
+        }
+
+        // largest duration that falls in the bucket
+        static long upperBound(int index) {
+            if (index < EXACT) return index;
+            int log = (index - EXACT) / 4 + 4;
+            int sub = (index - EXACT) % 4;
+            return ((4L + sub + 1) << (log - 2)) - 1;
+        }
+    }
+
+    private long now() {
+        return clock.millis();
+    }
+
+    // brings a window up to the present before it is read or written
+    private Window window(Window window) {
+        window.advance(Math.floorDiv(now(), window.resolution.millis));
+        return window;
+    }
+
+    // Recording; called from the lending path
+    public synchronized void record(Metric metric) {
+        for (Window window : windows) {
+            window(window).add(metric.ordinal(), 1);
+        }
+    }
+
+    public synchronized void recordLoanDuration(long days) {
+        window(durations).add(DurationSketch.index(Math.max(0, days)), 1);
+    }
+
+    // Reads for dashboards
+
+    // the last n buckets at the given resolution, oldest first
+    public synchronized long[] series(Metric metric, Resolution resolution, int n) {
+        Window window = window(windows[resolution.ordinal()]);
+        int length = Math.max(0, Math.min(n, resolution.buckets));
+        long[] series = new long[length];
+        for (int i = 0; i < length; i++) {
+            series[i] = window.count(metric.ordinal(), window.current - length + 1 + i);
+        }
+        return series;
+    }
+
+    // sum of the last n buckets, from the running totals
+    public synchronized long total(Metric metric, Resolution resolution, int n) {
+        return window(windows[resolution.ordinal()]).total(metric.ordinal(), n);
+    }
+
+    // Downsamples a series by summing each run of factor buckets
+    public static long[] downsample(long[] series, int factor) {
+        long[] result = new long[(series.length + factor - 1) / factor];
+        for (int i = 0; i < series.length; i++) {
+            result[i / factor] += series[i];
+        }
+        return result;
+    }
+
+    // p in [0, 100], over loans returned in the last n days
+    public synchronized long loanDurationPercentile(double p, int days) {
+        Window window = window(durations);
+        long[] merged = new long[DurationSketch.BUCKETS];
+        long total = 0;
+        for (int b = 0; b < merged.length; b++) {
+            merged[b] = window.total(b, days);
+            total += merged[b];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(p / 100.0 * total);
+        long seen = 0;
+        for (int b = 0; b < merged.length; b++) {
+            seen += merged[b];
+            if (seen >= Math.max(rank, 1)) {
+                return DurationSketch.upperBound(b);
+            }
+        }
+        return DurationSketch.upperBound(merged.length - 1);
+    }
+}
@@ -1,28 +1,72 @@
 package library;
 
+import java.nio.file.*;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.io.*;
 
 /**
  * Library Management System
- * A comprehensive system to manage books, members, and lending operations
+ * A comprehensive system to manage books, members, and lending operations.
+ * Close an engine when done with it, to release the archive it was loaded
+ * with and its hold notification thread.
  */
-public class LibraryManagementSystem {
+public class LibraryManagementSystem implements AutoCloseable {
     private List<Book> books;
     private List<Member> members;
     private Map<String, List<LendingRecord>> lendingHistory;
+    private HistoryLog historyLog;
+    private final AtomicLong epoch = new AtomicLong();
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private LendingIndex lendingIndex;
+    private Map<String, Deque<Hold>> holdQueues;
+    private Map<String, Hold> activeHolds;
+    private NavigableMap<LocalDate, List<Hold>> holdTimers;
+    private List<HoldListener> holdListeners;
+    private ExecutorService holdNotifier;
+    private LendingEventBus eventBus;
+    // source of every date the engine records; simulations supply their own
+    private final Clock clock;
+    private final LendingRollups rollups;
+    // closed records left on disk by load(); null for an engine built in memory
+    private LendingArchive archive;
+    private volatile CatalogIndex catalogIndex;
+    private volatile CoBorrowingModel coBorrowing = new CoBorrowingModel();
     private static final int MAX_BOOKS_PER_MEMBER = 5;
     private static final int LENDING_PERIOD_DAYS = 14;
+    private static final int HOLD_PICKUP_DAYS = 3;
+    private static final int HOLD_EXPIRY_DAYS = 30;
+    private static final String STATE_FILE = "library.ser";
+    private static final String ARCHIVE_FILE = "history.archive";
 
     public LibraryManagementSystem() {
-        this.books = new ArrayList<>();
-        this.members = new ArrayList<>();
+        this(Clock.systemDefaultZone());
+    }
+
+    public LibraryManagementSystem(Clock clock) {
+        this.clock = clock;
+        this.rollups = new LendingRollups(clock);
+        this.books = new CopyOnWriteArrayList<>();
+        this.members = new CopyOnWriteArrayList<>();
         this.lendingHistory = new HashMap<>();
+        this.historyLog = new HistoryLog();
+        this.lendingIndex = new LendingIndex();
+        this.holdQueues = new HashMap<>();
+        this.activeHolds = new HashMap<>();
+        this.holdTimers = new TreeMap<>();
+        this.holdListeners = new CopyOnWriteArrayList<>();
     }
 
     // Book Class
     public static class Book implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         private String isbn;
         private String title;
         private String author;
@@ -31,7 +75,8 @@ public class LibraryManagementSystem {
         private boolean isAvailable;
         private int totalCopies;
         private int availableCopies;
-        private List<Review> reviews;
+        // concrete list types, so the serialized form is pinned down
+        private CopyOnWriteArrayList<Review> reviews;
 
         public Book(String isbn, String title, String author, String genre, int publicationYear, int totalCopies) {
             this.isbn = isbn;
@@ -42,7 +87,7 @@ public class LibraryManagementSystem {
             this.totalCopies = totalCopies;
             this.availableCopies = totalCopies;
             this.isAvailable = true;
-            this.reviews = new ArrayList<>();
+            this.reviews = new CopyOnWriteArrayList<>();
         }
 
         // Getters and Setters
@@ -84,27 +129,43 @@ public class LibraryManagementSystem {
 
     // Member Class
     public static class Member implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         private String memberId;
         private String name;
         private String email;
         private String phone;
         private LocalDate joinDate;
         private MembershipType membershipType;
-        private List<Book> borrowedBooks;
-        private List<Fine> fines;
+        private ArrayList<Book> borrowedBooks;
+        private ArrayList<Fine> fines;
 
         public Member(String memberId, String name, String email, String phone, MembershipType membershipType) {
+            this(memberId, name, email, phone, membershipType, LocalDate.now());
+        }
+
+        public Member(String memberId, String name, String email, String phone, MembershipType membershipType,
+                      LocalDate joinDate) {
             this.memberId = memberId;
             this.name = name;
             this.email = email;
             this.phone = phone;
-            this.joinDate = LocalDate.now();
+            this.joinDate = joinDate;
             this.membershipType = membershipType;
             this.borrowedBooks = new ArrayList<>();
             this.fines = new ArrayList<>();
         }
 
-     
+        // Getters
+        public String getMemberId() { return memberId; }
+        public String getName() { return name; }
+        public String getEmail() { return email; }
+        public String getPhone() { return phone; }
+        public LocalDate getJoinDate() { return joinDate; }
+        public MembershipType getMembershipType() { return membershipType; }
+        public List<Book> getBorrowedBooks() { return borrowedBooks; }
+        public List<Fine> getFines() { return fines; }
+
         public boolean canBorrowBooks() {
             return borrowedBooks.size() < MAX_BOOKS_PER_MEMBER && getTotalUnpaidFines() == 0;
         }
@@ -127,6 +188,8 @@ public class LibraryManagementSystem {
 
     // LendingRecord Class
     public static class LendingRecord implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         private String recordId;
         private Book book;
         private Member member;
@@ -134,16 +197,48 @@ public class LibraryManagementSystem {
         private LocalDate dueDate;
         private LocalDate returnDate;
         private Status status;
+        // engine epochs at which the loan was made and closed
+        private transient long lendEpoch;
+        private transient volatile long returnEpoch = Long.MAX_VALUE;
 
         public LendingRecord(String recordId, Book book, Member member) {
+            this(recordId, book, member, LocalDate.now());
+        }
+
+        public LendingRecord(String recordId, Book book, Member member, LocalDate borrowDate) {
             this.recordId = recordId;
             this.book = book;
             this.member = member;
-            this.borrowDate = LocalDate.now();
+            this.borrowDate = borrowDate;
             this.dueDate = borrowDate.plusDays(LENDING_PERIOD_DAYS);
             this.status = Status.BORROWED;
         }
 
+        // frozen copy of a loan as it stood while still borrowed
+        private LendingRecord(LendingRecord open) {
+            this.recordId = open.recordId;
+            this.book = open.book;
+            this.member = open.member;
+            this.borrowDate = open.borrowDate;
+            this.dueDate = open.dueDate;
+            this.status = Status.BORROWED;
+            this.lendEpoch = open.lendEpoch;
+        }
+
+        // closed record paged in from a LendingArchive; closed before this
+        // engine started, so visible to every snapshot as it is
+        LendingRecord(String recordId, Book book, Member member, LocalDate borrowDate,
+                      LocalDate dueDate, LocalDate returnDate, Status status) {
+            this.recordId = recordId;
+            this.book = book;
+            this.member = member;
+            this.borrowDate = borrowDate;
+            this.dueDate = dueDate;
+            this.returnDate = returnDate;
+            this.status = status;
+            this.returnEpoch = 0;
+        }
+
         // Getters and Setters
         public String getRecordId() { return recordId; }
         public Book getBook() { return book; }
@@ -156,12 +251,21 @@ public class LibraryManagementSystem {
         public void setStatus(Status status) { this.status = status; }
 
         public boolean isOverdue() {
-            return status == Status.BORROWED && LocalDate.now().isAfter(dueDate);
+            return isOverdue(LocalDate.now());
+        }
+
+        // as of the given day, e.g. today on an engine's clock
+        public boolean isOverdue(LocalDate today) {
+            return status == Status.BORROWED && today.isAfter(dueDate);
         }
 
         public long getOverdueDays() {
-            if (!isOverdue()) return 0;
-            return java.time.temporal.ChronoUnit.DAYS.between(dueDate, LocalDate.now());
+            return getOverdueDays(LocalDate.now());
+        }
+
+        public long getOverdueDays(LocalDate today) {
+            if (!isOverdue(today)) return 0;
+            return java.time.temporal.ChronoUnit.DAYS.between(dueDate, today);
         }
 
         @Override
@@ -173,8 +277,120 @@ public class LibraryManagementSystem {
         }
     }
 
+    // LendingIndex Class
+    // Day-partitioned indexes over the lending history, keyed by epoch-day.
+    // A range query touches only the day buckets inside the range, so its
+    // cost follows the result size rather than the history size.
+    public static class LendingIndex {
+        private final NavigableMap<Long, List<LendingRecord>> byBorrowDate = new TreeMap<>();
+        private final NavigableMap<Long, List<LendingRecord>> byDueDate = new TreeMap<>();
+        private final NavigableMap<Long, List<LendingRecord>> byReturnDate = new TreeMap<>();
+
+        public void onLend(LendingRecord record) {
+            add(byBorrowDate, record.getBorrowDate(), record);
+            add(byDueDate, record.getDueDate(), record);
+        }
+
+        public void onReturn(LendingRecord record) {
+            add(byReturnDate, record.getReturnDate(), record);
+        }
+
+        public List<LendingRecord> borrowedBetween(LocalDate from, LocalDate to) {
+            return range(byBorrowDate, from, to);
+        }
+
+        public List<LendingRecord> dueBetween(LocalDate from, LocalDate to) {
+            return range(byDueDate, from, to);
+        }
+
+        public List<LendingRecord> returnedBetween(LocalDate from, LocalDate to) {
+            return range(byReturnDate, from, to);
+        }
+
+        private static void add(NavigableMap<Long, List<LendingRecord>> index,
+                                LocalDate date, LendingRecord record) {
+            index.computeIfAbsent(date.toEpochDay(), k -> new ArrayList<>()).add(record);
+        }
+
+        // inclusive on both ends
+        private static List<LendingRecord> range(NavigableMap<Long, List<LendingRecord>> index,
+                                                 LocalDate from, LocalDate to) {
+            List<LendingRecord> result = new ArrayList<>();
+            index.subMap(from.toEpochDay(), true, to.toEpochDay(), true)
+                 .values()
+                 .forEach(result::addAll);
+            return result;
+        }
+    }
+
+    // HistoryLog Class
+    // Append-only log of every lending record, in fixed-size chunks that
+    // never move once written. The writer fills a slot and then publishes
+    // the new size, so readers can walk any prefix without locks.
+    static class HistoryLog {
+        private static final int CHUNK_SIZE = 1024;
+
+        private volatile LendingRecord[][] chunks = new LendingRecord[0][];
+        private volatile int size;
+
+        void append(LendingRecord record) {
+            int index = size;
+            LendingRecord[][] current = chunks;
+            if (index / CHUNK_SIZE == current.length) {
+                current = Arrays.copyOf(current, current.length + 1);
+                current[current.length - 1] = new LendingRecord[CHUNK_SIZE];
+                chunks = current;
+            }
+            current[index / CHUNK_SIZE][index % CHUNK_SIZE] = record;
+            size = index + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        LendingRecord get(int index) {
+            return chunks[index / CHUNK_SIZE][index % CHUNK_SIZE];
+        }
+    }
+
+    // LibrarySnapshot Class
+    // A point-in-time view of the catalog, members and lending history as
+    // of one epoch. Lending carries on while a snapshot is read: records
+    // lent after the epoch are left out, and loans returned after it are
+    // shown as they stood, still borrowed.
+    public static class LibrarySnapshot {
+        private final long epoch;
+        // the engine's date when the snapshot was taken, for overdue figures
+        private final LocalDate date;
+        private final List<Book> books;
+        private final List<Member> members;
+        private final Map<String, List<LendingRecord>> lendingHistory;
+
+        LibrarySnapshot(long epoch, LocalDate date, List<Book> books, List<Member> members,
+                        Map<String, List<LendingRecord>> lendingHistory) {
+            this.epoch = epoch;
+            this.date = date;
+            this.books = books;
+            this.members = members;
+            this.lendingHistory = lendingHistory;
+        }
+
+        public long getEpoch() { return epoch; }
+        public LocalDate getDate() { return date; }
+        public List<Book> getBooks() { return books; }
+        public List<Member> getMembers() { return members; }
+        public Map<String, List<LendingRecord>> getLendingHistory() { return lendingHistory; }
+
+        public LibraryAnalytics getAnalytics() {
+            return new LibraryAnalytics(books, members, lendingHistory, date);
+        }
+    }
+
     // Review Class
     public static class Review implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         private String reviewId;
         private Member member;
         private Book book;
@@ -183,12 +399,17 @@ public class LibraryManagementSystem {
         private LocalDate reviewDate;
 
         public Review(String reviewId, Member member, Book book, int rating, String comment) {
+            this(reviewId, member, book, rating, comment, LocalDate.now());
+        }
+
+        public Review(String reviewId, Member member, Book book, int rating, String comment,
+                      LocalDate reviewDate) {
             this.reviewId = reviewId;
             this.member = member;
             this.book = book;
             this.rating = rating;
             this.comment = comment;
-            this.reviewDate = LocalDate.now();
+            this.reviewDate = reviewDate;
         }
 
         // Getters and Setters
@@ -204,9 +425,12 @@ public class LibraryManagementSystem {
 
     // Fine Class
     public static class Fine implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         private String fineId;
         private Member member;
-        private LendingRecord lendingRecord;
+        // only the ID, so a saved member does not drag closed loans along
+        private String lendingRecordId;
         private double amount;
         private String reason;
         private boolean paid;
@@ -214,19 +438,24 @@ public class LibraryManagementSystem {
         private LocalDate paymentDate;
 
         public Fine(String fineId, Member member, LendingRecord record, double amount, String reason) {
+            this(fineId, member, record, amount, reason, LocalDate.now());
+        }
+
+        public Fine(String fineId, Member member, LendingRecord record, double amount, String reason,
+                    LocalDate issueDate) {
             this.fineId = fineId;
             this.member = member;
-            this.lendingRecord = record;
+            this.lendingRecordId = record.getRecordId();
             this.amount = amount;
             this.reason = reason;
             this.paid = false;
-            this.issueDate = LocalDate.now();
+            this.issueDate = issueDate;
         }
 
         // Getters and Setters
         public String getFineId() { return fineId; }
         public Member getMember() { return member; }
-        public LendingRecord getLendingRecord() { return lendingRecord; }
+        public String getLendingRecordId() { return lendingRecordId; }
         public double getAmount() { return amount; }
         public String getReason() { return reason; }
         public boolean isPaid() { return paid; }
@@ -234,16 +463,76 @@ public class LibraryManagementSystem {
         public LocalDate getPaymentDate() { return paymentDate; }
 
         public void payFine() {
+            payFine(LocalDate.now());
+        }
+
+        public void payFine(LocalDate paymentDate) {
             this.paid = true;
-            this.paymentDate = LocalDate.now();
+            this.paymentDate = paymentDate;
+        }
+    }
+
+    // Hold Class
+    public static class Hold implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String holdId;
+        private Book book;
+        private Member member;
+        private LocalDate placedDate;
+        private LocalDate expiryDate;
+        private HoldStatus status;
+
+        public Hold(String holdId, Book book, Member member) {
+            this(holdId, book, member, LocalDate.now());
+        }
+
+        public Hold(String holdId, Book book, Member member, LocalDate placedDate) {
+            this.holdId = holdId;
+            this.book = book;
+            this.member = member;
+            this.placedDate = placedDate;
+            this.expiryDate = placedDate.plusDays(HOLD_EXPIRY_DAYS);
+            this.status = HoldStatus.WAITING;
+        }
+
+        // Getters
+        public String getHoldId() { return holdId; }
+        public Book getBook() { return book; }
+        public Member getMember() { return member; }
+        public LocalDate getPlacedDate() { return placedDate; }
+        public LocalDate getExpiryDate() { return expiryDate; }
+        public HoldStatus getStatus() { return status; }
+
+        public boolean isActive() {
+            return status == HoldStatus.WAITING || status == HoldStatus.READY;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Hold{id='%s', book='%s', member='%s', placedDate=%s, " +
+                               "expiryDate=%s, status=%s}",
+                               holdId, book.getTitle(), member.getName(), placedDate,
+                               expiryDate, status);
         }
     }
 
+    // Receives hold notifications on the notifier thread, off the lending path
+    public interface HoldListener {
+        void onHoldReady(Hold hold);
+
+        default void onHoldExpired(Hold hold) {}
+    }
+
     // Enums
     public enum Status {
         BORROWED, RETURNED, LOST, DAMAGED
     }
 
+    public enum HoldStatus {
+        WAITING, READY, FULFILLED, EXPIRED, CANCELLED
+    }
+
     public enum MembershipType {
         STANDARD, PREMIUM, STUDENT, SENIOR
     }
@@ -251,21 +540,38 @@ public class LibraryManagementSystem {
     // Main Library Management Methods
     public void addBook(Book book) {
         books.add(book);
+        catalogVersion.incrementAndGet();
+    }
+
+    // one copy of the copy-on-write catalog for a whole batch
+    public void addBooks(Collection<Book> batch) {
+        books.addAll(batch);
+        catalogVersion.incrementAndGet();
     }
 
     public void removeBook(String isbn) {
         books.removeIf(book -> book.getIsbn().equals(isbn));
+        catalogVersion.incrementAndGet();
     }
 
     public void addMember(Member member) {
         members.add(member);
+        catalogVersion.incrementAndGet();
+    }
+
+    public void addMembers(Collection<Member> batch) {
+        members.addAll(batch);
+        catalogVersion.incrementAndGet();
     }
 
     public void removeMember(String memberId) {
         members.removeIf(member -> member.getMemberId().equals(memberId));
+        catalogVersion.incrementAndGet();
     }
 
     public LendingRecord lendBook(String isbn, String memberId) throws LibraryException {
+        expireHolds(today());
+
         Book book = findBook(isbn);
         Member member = findMember(memberId);
 
@@ -273,7 +579,10 @@ public class LibraryManagementSystem {
             throw new LibraryException("Book or member not found");
         }
 
-        if (!book.isAvailable()) {
+        // a ready hold means a copy is already set aside for this member
+        Hold pickup = readyHold(isbn, memberId);
+
+        if (pickup == null && !book.isAvailable()) {
             throw new LibraryException("Book is not available");
         }
 
@@ -281,21 +590,75 @@ public class LibraryManagementSystem {
             throw new LibraryException("Member cannot borrow more books");
         }
 
-        String recordId = UUID.randomUUID().toString();
-        LendingRecord record = new LendingRecord(recordId, book, member);
-        
-        book.availableCopies--;
-        if (book.availableCopies == 0) {
-            book.setAvailable(false);
+        checkOut(book, pickup);
+        return commitBorrow(book, member);
+    }
+
+    public void returnBook(String recordId) throws LibraryException {
+        LendingRecord record = closeLoan(recordId);
+
+        // goes to the next hold in line, or back on the shelf
+        releaseCopy(record.getBook());
+    }
+
+    // Two-Phase Checkout
+    // Used by ShardedLibrary when a book and a member live on different
+    // engines, with both engines locked. In phase one the book side checks
+    // availability in prepareCheckout and the member side validates in
+    // prepareBorrow; neither changes anything, so a failure needs no undo.
+    // In phase two commitCheckout sets a copy aside, honouring the member's
+    // ready hold, and commitBorrow records the loan. returnBook is split the
+    // same way into closeLoan (member side) and releaseCopy (book side).
+    Book prepareCheckout(String isbn, String memberId) throws LibraryException {
+        expireHolds(today());
+
+        Book book = findBook(isbn);
+        if (book == null) {
+            throw new LibraryException("Book not found");
+        }
+
+        if (readyHold(isbn, memberId) == null && !book.isAvailable()) {
+            throw new LibraryException("Book is not available");
+        }
+        return book;
+    }
+
+    void commitCheckout(Book book, String memberId) {
+        checkOut(book, readyHold(book.getIsbn(), memberId));
+    }
+
+    Member prepareBorrow(String memberId) throws LibraryException {
+        Member member = findMember(memberId);
+        if (member == null) {
+            throw new LibraryException("Member not found");
+        }
+
+        if (!member.canBorrowBooks()) {
+            throw new LibraryException("Member cannot borrow more books");
         }
+        return member;
+    }
+
+    LendingRecord commitBorrow(Book book, Member member) {
+        String recordId = UUID.randomUUID().toString();
+        LendingRecord record = new LendingRecord(recordId, book, member, today());
 
         member.borrowedBooks.add(book);
-        lendingHistory.computeIfAbsent(memberId, k -> new ArrayList<>()).add(record);
+        lendingHistory.computeIfAbsent(member.getMemberId(), k -> new ArrayList<>()).add(record);
+        lendingIndex.onLend(record);
+        coBorrowing.onLend(member.getMemberId(), book.getIsbn());
+
+        // visible to snapshots from the next epoch on
+        record.lendEpoch = epoch.get() + 1;
+        historyLog.append(record);
+        epoch.incrementAndGet();
+        publish(LendingEventBus.EventType.LENT, record);
+        rollups.record(LendingRollups.Metric.LOANS);
 
         return record;
     }
 
-    public void returnBook(String recordId) throws LibraryException {
+    LendingRecord closeLoan(String recordId) throws LibraryException {
         LendingRecord record = findLendingRecord(recordId);
         if (record == null) {
             throw new LibraryException("Lending record not found");
@@ -305,40 +668,347 @@ public class LibraryManagementSystem {
             throw new LibraryException("Book is not currently borrowed");
         }
 
+        expireHolds(today());
+
         record.setStatus(Status.RETURNED);
-        record.setReturnDate(LocalDate.now());
+        record.setReturnDate(today());
+        lendingIndex.onReturn(record);
+
+        record.getMember().borrowedBooks.remove(record.getBook());
+
+        // the return is complete before snapshots can see it
+        record.returnEpoch = epoch.get() + 1;
+        epoch.incrementAndGet();
+        publish(LendingEventBus.EventType.RETURNED, record);
+        rollups.record(LendingRollups.Metric.RETURNS);
+        rollups.recordLoanDuration(ChronoUnit.DAYS.between(record.getBorrowDate(), record.getReturnDate()));
+        // the record is RETURNED by now, so isOverdue() no longer applies
+        if (record.getReturnDate().isAfter(record.getDueDate())) {
+            rollups.record(LendingRollups.Metric.OVERDUES);
+            createFine(record);
+        }
+        return record;
+    }
+
+    private Hold readyHold(String isbn, String memberId) {
+        Hold hold = activeHolds.get(holdKey(isbn, memberId));
+        return hold != null && hold.status == HoldStatus.READY ? hold : null;
+    }
+
+    // takes the copy held for the member, or else one from the shelf
+    private void checkOut(Book book, Hold pickup) {
+        if (pickup != null) {
+            pickup.status = HoldStatus.FULFILLED;
+            activeHolds.remove(holdKey(book.getIsbn(), pickup.getMember().getMemberId()));
+        } else {
+            takeCopy(book);
+        }
+    }
+
+    private void takeCopy(Book book) {
+        book.availableCopies--;
+        if (book.availableCopies == 0) {
+            book.setAvailable(false);
+        }
+    }
+
+    // Date-Range Queries (all ranges inclusive)
+    public List<LendingRecord> getLoansBorrowedBetween(LocalDate from, LocalDate to) {
+        List<LendingRecord> result = lendingIndex.borrowedBetween(from, to);
+        if (archive != null) {
+            result.addAll(0, archive.borrowedBetween(from, to));
+        }
+        return result;
+    }
+
+    public List<LendingRecord> getLoansDueBetween(LocalDate from, LocalDate to) {
+        List<LendingRecord> result = lendingIndex.dueBetween(from, to);
+        if (archive != null) {
+            result.addAll(0, archive.dueBetween(from, to));
+        }
+        return result;
+    }
+
+    public List<LendingRecord> getReturnsBetween(LocalDate from, LocalDate to) {
+        List<LendingRecord> result = lendingIndex.returnedBetween(from, to);
+        if (archive != null) {
+            result.addAll(0, archive.returnedBetween(from, to));
+        }
+        return result;
+    }
+
+    // A member's archived loans and the ones in memory are each kept in
+    // borrow order. A date range or a page is located in both by binary
+    // search, and only the records it returns are merged, so the cost
+    // follows the size of the result rather than the whole history.
+    public List<LendingRecord> getMemberLoansBetween(String memberId, LocalDate from, LocalDate to) {
+        List<LendingRecord> archived = archivedHistory(memberId);
+        List<LendingRecord> live = liveHistory(memberId);
+        return merge(range(archived, from, to), range(live, from, to), Integer.MAX_VALUE);
+    }
+
+    public List<LendingRecord> getMemberHistoryPage(String memberId, int offset, int limit) {
+        List<LendingRecord> archived = archivedHistory(memberId);
+        List<LendingRecord> live = liveHistory(memberId);
+        int size = archived.size() + live.size();
+        int start = Math.min(Math.max(offset, 0), size);
+        // clamped before adding, so a huge limit cannot overflow
+        int count = Math.min(Math.max(limit, 0), size - start);
+        int skipped = archivedBefore(archived, live, start);
+        return merge(archived.subList(skipped, archived.size()),
+                     live.subList(start - skipped, live.size()), count);
+    }
+
+    private List<LendingRecord> liveHistory(String memberId) {
+        return lendingHistory.getOrDefault(memberId, List.of());
+    }
+
+    // archived loans are paged in a member block at a time
+    private List<LendingRecord> archivedHistory(String memberId) {
+        return archive == null ? List.of() : archive.memberHistory(memberId);
+    }
+
+    private static List<LendingRecord> range(List<LendingRecord> history, LocalDate from, LocalDate to) {
+        int start = firstBorrowedOnOrAfter(history, from);
+        int end = firstBorrowedOnOrAfter(history, to.plusDays(1));
+        return history.subList(start, Math.max(start, end));
+    }
+
+    // How many of the first k loans in borrow order are archived ones; on
+    // the same borrow date archived loans come first
+    private static int archivedBefore(List<LendingRecord> archived, List<LendingRecord> live, int k) {
+        int lo = Math.max(0, k - live.size());
+        int hi = Math.min(k, archived.size());
+        while (lo < hi) {
+            int taken = (lo + hi) >>> 1;
+            // too few if the next archived loan is no later than the last live one
+            if (!archived.get(taken).getBorrowDate().isAfter(live.get(k - taken - 1).getBorrowDate())) {
+                lo = taken + 1;
+            } else {
+                hi = taken;
+            }
+        }
+        return lo;
+    }
+
+    // Two cursors over runs already in borrow order, stopping after limit
+    private static List<LendingRecord> merge(List<LendingRecord> archived, List<LendingRecord> live, int limit) {
+        List<LendingRecord> result = new ArrayList<>(Math.min(limit, archived.size() + live.size()));
+        int a = 0;
+        int l = 0;
+        while (result.size() < limit && (a < archived.size() || l < live.size())) {
+            if (l == live.size() || a < archived.size()
+                    && !archived.get(a).getBorrowDate().isAfter(live.get(l).getBorrowDate())) {
+                result.add(archived.get(a++));
+            } else {
+                result.add(live.get(l++));
+            }
+        }
+        return result;
+    }
+
+    private static int firstBorrowedOnOrAfter(List<LendingRecord> history, LocalDate date) {
+        int lo = 0;
+        int hi = history.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (history.get(mid).getBorrowDate().isBefore(date)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Reservation Holds
+    // Each ISBN has a FIFO queue of holds. A returned copy goes straight to
+    // the head of the queue and is kept out of availableCopies until the
+    // member picks it up or the hold expires. Cancelled and expired holds
+    // are dropped lazily when they reach the head, so allocation is O(1)
+    // amortized. Expiry is driven by holdTimers, a map of due date to the
+    // holds due that day, so only holds that are actually due are touched.
+    public Hold placeHold(String isbn, String memberId) throws LibraryException {
+        Member member = findMember(memberId);
+        if (member == null) {
+            throw new LibraryException("Book or member not found");
+        }
+        return placeHold(isbn, member);
+    }
+
+    // book side of a hold; ShardedLibrary passes a member from another engine
+    Hold placeHold(String isbn, Member member) throws LibraryException {
+        expireHolds(today());
+
+        Book book = findBook(isbn);
+        if (book == null) {
+            throw new LibraryException("Book or member not found");
+        }
+
+        String memberId = member.getMemberId();
+        if (book.isAvailable()) {
+            throw new LibraryException("Book is available, no hold needed");
+        }
+
+        if (activeHolds.containsKey(holdKey(isbn, memberId))) {
+            throw new LibraryException("Member already has a hold on this book");
+        }
+
+        Hold hold = new Hold(UUID.randomUUID().toString(), book, member, today());
+        holdQueues.computeIfAbsent(isbn, k -> new ArrayDeque<>()).addLast(hold);
+        activeHolds.put(holdKey(isbn, memberId), hold);
+        scheduleExpiry(hold);
+        return hold;
+    }
 
-        Book book = record.getBook();
-        Member member = record.getMember();
+    public void cancelHold(String isbn, String memberId) throws LibraryException {
+        Hold hold = activeHolds.remove(holdKey(isbn, memberId));
+        if (hold == null) {
+            throw new LibraryException("Hold not found");
+        }
+
+        boolean wasReady = hold.status == HoldStatus.READY;
+        hold.status = HoldStatus.CANCELLED;
+        if (wasReady) {
+            releaseCopy(hold.getBook());
+        }
+    }
+
+    public int getHoldQueueLength(String isbn) {
+        Deque<Hold> queue = holdQueues.get(isbn);
+        if (queue == null) return 0;
+        return (int) queue.stream().filter(hold -> hold.status == HoldStatus.WAITING).count();
+    }
+
+    public void addHoldListener(HoldListener listener) {
+        holdListeners.add(listener);
+    }
+
+    // Expires every hold due on or before the given date
+    public void expireHolds(LocalDate today) {
+        while (!holdTimers.isEmpty() && !holdTimers.firstKey().isAfter(today)) {
+            Map.Entry<LocalDate, List<Hold>> due = holdTimers.pollFirstEntry();
+            for (Hold hold : due.getValue()) {
+                // rescheduled holds are also filed under their new date
+                if (!hold.isActive() || !hold.expiryDate.equals(due.getKey())) continue;
+
+                boolean wasReady = hold.status == HoldStatus.READY;
+                hold.status = HoldStatus.EXPIRED;
+                activeHolds.remove(holdKey(hold.getBook().getIsbn(), hold.getMember().getMemberId()));
+                notifyHold(listener -> listener.onHoldExpired(hold));
+                if (wasReady) {
+                    releaseCopy(hold.getBook());
+                }
+            }
+        }
+    }
+
+    // book side of a return recorded on another engine, whose Book may be a
+    // different instance, e.g. after load()
+    void releaseCopy(String isbn) {
+        Book book = findBook(isbn);
+        if (book != null) {
+            releaseCopy(book);
+        }
+    }
+
+    // A copy has come free: give it to the next waiting hold, if any
+    void releaseCopy(Book book) {
+        Deque<Hold> queue = holdQueues.get(book.getIsbn());
+        Hold next = null;
+        while (queue != null && !queue.isEmpty()) {
+            Hold head = queue.pollFirst();
+            if (head.status == HoldStatus.WAITING) {
+                next = head;
+                break;
+            }
+        }
 
-        book.availableCopies++;
-        if (book.availableCopies > 0) {
+        if (next == null) {
+            book.availableCopies++;
             book.setAvailable(true);
+            return;
         }
 
-        member.borrowedBooks.remove(book);
+        Hold ready = next;
+        ready.status = HoldStatus.READY;
+        ready.expiryDate = today().plusDays(HOLD_PICKUP_DAYS);
+        scheduleExpiry(ready);
+        notifyHold(listener -> listener.onHoldReady(ready));
+    }
 
-        if (record.isOverdue()) {
-            createFine(record);
+    private void scheduleExpiry(Hold hold) {
+        holdTimers.computeIfAbsent(hold.expiryDate, k -> new ArrayList<>()).add(hold);
+    }
+
+    private void notifyHold(Consumer<HoldListener> event) {
+        if (holdListeners.isEmpty()) return;
+        for (HoldListener listener : holdListeners) {
+            holdNotifier().execute(() -> event.accept(listener));
         }
     }
 
+    private synchronized Executor holdNotifier() {
+        if (holdNotifier == null) {
+            holdNotifier = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "library-hold-notifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return holdNotifier;
+    }
+
+    private static String holdKey(String isbn, String memberId) {
+        return isbn + '/' + memberId;
+    }
+
     private void createFine(LendingRecord record) {
         double fineAmount = calculateFine(record);
         if (fineAmount > 0) {
             String fineId = UUID.randomUUID().toString();
-            Fine fine = new Fine(fineId, record.getMember(), record, fineAmount, 
-                               "Overdue book return");
+            Fine fine = new Fine(fineId, record.getMember(), record, fineAmount,
+                                 "Overdue book return", today());
             record.getMember().getFines().add(fine);
+            publish(LendingEventBus.EventType.FINE_ISSUED, record);
+            rollups.record(LendingRollups.Metric.FINES);
+        }
+    }
+
+    // paid through the engine so the payment is dated by its clock
+    public void payFine(Fine fine) {
+        fine.payFine(today());
+    }
+
+    // Lending Events
+    // Downstream work (analytics, fines, notifications, persistence)
+    // subscribes to the bus instead of running inside lendBook/returnBook.
+    public void setEventBus(LendingEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    // Per-minute/hour/day lending counters for this engine's branch
+    public LendingRollups getRollups() {
+        return rollups;
+    }
+
+    private void publish(LendingEventBus.EventType type, LendingRecord record) {
+        if (eventBus != null) {
+            eventBus.publish(type, record);
         }
     }
 
+    // charged on return, for the days between the due date and the return
     private double calculateFine(LendingRecord record) {
-        long overdueDays = record.getOverdueDays();
+        long overdueDays = ChronoUnit.DAYS.between(record.getDueDate(), record.getReturnDate());
         return overdueDays * 0.50; // $0.50 per day
     }
 
     // Helper Methods
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
     private Book findBook(String isbn) {
         return books.stream()
                    .filter(book -> book.getIsbn().equals(isbn))
@@ -346,14 +1016,14 @@ public class LibraryManagementSystem {
                    .orElse(null);
     }
 
-    private Member findMember(String memberId) {
+    Member findMember(String memberId) {
         return members.stream()
                      .filter(member -> member.getMemberId().equals(memberId))
                      .findFirst()
                      .orElse(null);
     }
 
-    private LendingRecord findLendingRecord(String recordId) {
+    LendingRecord findLendingRecord(String recordId) {
         return lendingHistory.values().stream()
                            .flatMap(List::stream)
                            .filter(record -> record.getRecordId().equals(recordId))
@@ -363,6 +1033,8 @@ public class LibraryManagementSystem {
 
     // Custom Exception
     public static class LibraryException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         public LibraryException(String message) {
             super(message);
         }
@@ -373,12 +1045,20 @@ public class LibraryManagementSystem {
         private final List<Book> books;
         private final List<Member> members;
         private final Map<String, List<LendingRecord>> lendingHistory;
+        private final LocalDate today;
 
         public LibraryAnalytics(List<Book> books, List<Member> members, 
                               Map<String, List<LendingRecord>> lendingHistory) {
+            this(books, members, lendingHistory, LocalDate.now());
+        }
+
+        // overdue figures are as of today, normally the engine's date
+        public LibraryAnalytics(List<Book> books, List<Member> members,
+                              Map<String, List<LendingRecord>> lendingHistory, LocalDate today) {
             this.books = books;
             this.members = members;
             this.lendingHistory = lendingHistory;
+            this.today = today;
         }
 
         public Map<String, Integer> getGenreDistribution() {
@@ -397,27 +1077,39 @@ public class LibraryManagementSystem {
         }
 
         public double getAverageOverdueDays() {
+            return getOverdueDaysSummary().getAverage();
+        }
+
+        // count and sum as well as the average, so partial results can be merged
+        public LongSummaryStatistics getOverdueDaysSummary() {
             return lendingHistory.values().stream()
                                .flatMap(List::stream)
-                               .filter(LendingRecord::isOverdue)
-                               .mapToLong(LendingRecord::getOverdueDays)
-                               .average()
-                               .orElse(0.0);
+                               .filter(record -> record.isOverdue(today))
+                               .mapToLong(record -> record.getOverdueDays(today))
+                               .summaryStatistics();
         }
 
-        public List<BookPopularityStats> getMostPopularBooks(int limit) {
-            Map<Book, Long> borrowCount = lendingHistory.values().stream()
+        // borrow counts by ISBN; a member's history can include books held
+        // by other engines, so these can be merged across engines
+        public Map<String, Long> getBorrowCounts() {
+            return lendingHistory.values().stream()
                 .flatMap(List::stream)
-                .map(LendingRecord::getBook)
+                .map(record -> record.getBook().getIsbn())
                 .collect(Collectors.groupingBy(
-                    book -> book,
+                    isbn -> isbn,
                     Collectors.counting()
                 ));
+        }
+
+        public List<BookPopularityStats> getMostPopularBooks(int limit) {
+            return getMostPopularBooks(getBorrowCounts(), limit);
+        }
 
+        public List<BookPopularityStats> getMostPopularBooks(Map<String, Long> borrowCount, int limit) {
             return books.stream()
                        .map(book -> new BookPopularityStats(
                            book, 
-                           borrowCount.getOrDefault(book, 0L),
+                           borrowCount.getOrDefault(book.getIsbn(), 0L),
                            book.getAverageRating()))
                        .sorted()
                        .limit(limit)
@@ -434,7 +1126,7 @@ public class LibraryManagementSystem {
                          .toList();
         }
 
-        private int getLendingCount(String memberId) {
+        public int getLendingCount(String memberId) {
             return lendingHistory.getOrDefault(memberId, List.of()).size();
         }
     }
@@ -465,10 +1157,189 @@ public class LibraryManagementSystem {
     }
 
     // Add these methods to the main LibraryManagementSystem class
+    // Analytics read a snapshot, so reports never block or tear against
+    // lending running on another thread
     public LibraryAnalytics getAnalytics() {
-        return new LibraryAnalytics(books, members, lendingHistory);
+        return snapshot().getAnalytics();
+    }
+
+    // Snapshots
+    // Safe to call from any thread while lending continues. The catalog
+    // and member lists are copy-on-write, so copying them never blocks the
+    // writer; catalogVersion is checked around the copy so both come from
+    // the same catalog state.
+    public LibrarySnapshot snapshot() {
+        List<Book> bookView;
+        List<Member> memberView;
+        long version;
+        do {
+            version = catalogVersion.get();
+            bookView = List.copyOf(books);
+            memberView = List.copyOf(members);
+        } while (version != catalogVersion.get());
+
+        long at = epoch.get();
+        Map<String, List<LendingRecord>> live = new HashMap<>();
+        int size = historyLog.size();
+        for (int i = 0; i < size; i++) {
+            LendingRecord record = historyLog.get(i);
+            if (record.lendEpoch > at) break;
+            // returned records never change again; open ones are frozen
+            LendingRecord view = record.returnEpoch <= at ? record : new LendingRecord(record);
+            live.computeIfAbsent(record.getMember().getMemberId(), k -> new ArrayList<>()).add(view);
+        }
+        if (archive == null) {
+            return new LibrarySnapshot(at, today(), bookView, memberView, live);
+        }
+
+        // the archived lists are decoded once and shared by every snapshot;
+        // only members with loans in memory get a combined copy
+        Map<String, List<LendingRecord>> history = new HashMap<>(archive.readAll());
+        live.forEach((memberId, records) -> history.merge(memberId, records, (archived, recent) -> {
+            List<LendingRecord> combined = new ArrayList<>(archived.size() + recent.size());
+            combined.addAll(archived);
+            combined.addAll(recent);
+            return combined;
+        }));
+        return new LibrarySnapshot(at, today(), bookView, memberView, history);
+    }
+
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    // Recommendations
+    // "Members who borrowed this also borrowed", from the co-borrowing
+    // model kept up to date by every loan
+    public List<Book> getRecommendations(String isbn, int limit) {
+        CatalogIndex index = catalogIndex();
+        // asks for the whole top list, since removed books are skipped
+        return coBorrowing.recommend(isbn, Integer.MAX_VALUE).stream()
+                          .map(index.books::get)
+                          .filter(Objects::nonNull)
+                          .limit(limit)
+                          .toList();
+    }
+
+    // Recounts the model from the whole history, archived loans included,
+    // and swaps it in. Call it periodically from the lending thread, so
+    // that no loan falls between the snapshot and the swap.
+    public void rebuildRecommendations() {
+        coBorrowing = CoBorrowingModel.build(snapshot().getLendingHistory());
+    }
+
+    // Persistence
+    // save() writes the catalog, the members and the open loans to one file
+    // and every closed record to a LendingArchive beside it. A member's
+    // fines name their loans by ID, so no closed record is written with
+    // the members. load() reads only the first file and the archive's
+    // directory, so startup time follows the size of the catalog and the
+    // membership rather than the length of the history; closed records are
+    // paged in when a query first needs them.
+    public void save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<LendingRecord> open = new ArrayList<>();
+        List<LendingRecord> closed = new ArrayList<>();
+        if (archive != null) {
+            archive.readAll().values().forEach(closed::addAll);
+        }
+        lendingHistory.values().stream()
+                      .flatMap(List::stream)
+                      .forEach(record -> (record.getStatus() == Status.BORROWED ? open : closed).add(record));
+        LendingArchive.write(directory.resolve(ARCHIVE_FILE), closed);
+
+        Path state = directory.resolve(STATE_FILE);
+        Path temp = directory.resolve(STATE_FILE + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeObject(new ArrayList<>(books));
+            out.writeObject(new ArrayList<>(members));
+            out.writeObject(open);
+        }
+        Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static LibraryManagementSystem load(Path directory) throws IOException {
+        return load(directory, Clock.systemDefaultZone());
+    }
+
+    // as above, with the clock the reloaded engine dates loans, fines and
+    // holds by
+    @SuppressWarnings("unchecked")
+    public static LibraryManagementSystem load(Path directory, Clock clock) throws IOException {
+        LibraryManagementSystem library = new LibraryManagementSystem(clock);
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(STATE_FILE))))) {
+            library.addBooks((List<Book>) in.readObject());
+            library.addMembers((List<Member>) in.readObject());
+            for (LendingRecord record : (List<LendingRecord>) in.readObject()) {
+                // transient epochs are not restored by deserialization
+                record.returnEpoch = Long.MAX_VALUE;
+                record.lendEpoch = library.epoch.get() + 1;
+                library.lendingHistory.computeIfAbsent(record.getMember().getMemberId(), k -> new ArrayList<>()).add(record);
+                library.lendingIndex.onLend(record);
+                library.historyLog.append(record);
+                library.epoch.incrementAndGet();
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unreadable library state", e);
+        }
+
+        Path archiveFile = directory.resolve(ARCHIVE_FILE);
+        if (Files.exists(archiveFile)) {
+            library.archive = LendingArchive.open(archiveFile, library::archivedBook, library::archivedMember);
+        }
+        return library;
+    }
+
+    // Releases the archive file and stops the hold notification thread;
+    // pending notifications are still delivered
+    @Override
+    public synchronized void close() throws IOException {
+        if (holdNotifier != null) {
+            holdNotifier.shutdown();
+        }
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    // CatalogIndex Class
+    // ISBN and member ID lookups for records paged in from the archive,
+    // rebuilt only when the catalog or membership changes
+    private static class CatalogIndex {
+        final long version;
+        final Map<String, Book> books = new HashMap<>();
+        final Map<String, Member> members = new HashMap<>();
+
+        CatalogIndex(long version, List<Book> books, List<Member> members) {
+            this.version = version;
+            books.forEach(book -> this.books.put(book.getIsbn(), book));
+            members.forEach(member -> this.members.put(member.getMemberId(), member));
+        }
     }
 
+    private CatalogIndex catalogIndex() {
+        long version = catalogVersion.get();
+        CatalogIndex index = catalogIndex;
+        if (index == null || index.version != version) {
+            index = new CatalogIndex(version, books, members);
+            catalogIndex = index;
+        }
+        return index;
+    }
+
+    // books and members removed since the loan keep their key only
+    private Book archivedBook(String isbn) {
+        Book book = catalogIndex().books.get(isbn);
+        return book != null ? book : new Book(isbn, "(removed)", "", "", 0, 0);
+    }
+
+    private Member archivedMember(String memberId) {
+        Member member = catalogIndex().members.get(memberId);
+        return member != null ? member : new Member(memberId, "(removed)", "", "", MembershipType.STANDARD, today());
+    }
+
+
     public void generateReport() {
         LibraryAnalytics analytics = getAnalytics();
         System.out.println("=== Library System Report ===");
@@ -0,0 +1,568 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import library.LibraryManagementSystem;
+import library.LibraryManagementSystem.Book;
+import library.LibraryManagementSystem.Fine;
+import library.LibraryManagementSystem.LendingRecord;
+import library.LibraryManagementSystem.LibraryException;
+import library.LibraryManagementSystem.Member;
+import library.LibraryManagementSystem.MembershipType;
+import library.LibraryManagementSystem.Review;
+
+/**
+ * Synthetic production-like load for LibraryManagementSystem.
+ * A seeded generator builds a catalog with Zipfian book popularity and a
+ * realistic mix of membership types, then a trace of lend, return, review
+ * and fine-payment operations. Each member belongs to one client, so a
+ * member's operations keep their order. Clients run the trace open-loop
+ * at the target rate. Latency is measured from each operation's scheduled
+ * start, so a stalled engine shows up as queueing rather than as a lower
+ * rate. Traces can be written to a binary file and replayed exactly.
+ * The engine runs on a simulated clock that stretches the trace over a
+ * number of library days, so loans run past their due dates, fines are
+ * issued and paid, and holds expire within seconds of real time.
+ *
+ * Usage: java LibraryWorkload [--books n] [--members n] [--clients n] [--rate ops/s]
+ *                             [--ops n] [--zipf s] [--days n] [--seed n] [--record file] [--replay file]
+ */
+public class LibraryWorkload {
+
+    enum Op {
+        LEND, RETURN, REVIEW, PAY_FINE
+    }
+
+    // share of each membership type among generated members
+    private static final MembershipType[] TYPES = MembershipType.values();
+    private static final double[] TYPE_MIX = { 0.60, 0.10, 0.20, 0.10 }; // STANDARD, PREMIUM, STUDENT, SENIOR
+
+    // the engine's lending period, for predicting which returns are late
+    private static final int LOAN_DAYS = 14;
+
+    private static final String[] GENRES = { "Fiction", "Science", "History", "Poetry", "Travel", "Biography" };
+
+    // Zipf(s) over ranks 0..n-1 by inverse CDF lookup; rank 0 is the most popular
+    static final class Zipf {
+        private final double[] cdf;
+
+        Zipf(int n, double s) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1 / Math.pow(k + 1, s);
+                cdf[k] = sum;
+            }
+            for (int k = 0; k < n; k++) {
+                cdf[k] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+        }
+    }
+
+    // Trace Class
+    // The whole workload: generator settings plus one row per operation,
+    // stored column-wise. Catalog and members are rebuilt from the seed, so
+    // a trace file alone is enough to replay a run.
+    static final class Trace {
+        private static final int MAGIC = 0x4c425754; // "LBWT"
+        private static final int VERSION = 2;
+
+        final long seed;
+        final int books;
+        final int members;
+        final int clients;
+        final int days; // simulated library days the trace spans
+        final byte[] ops;
+        final int[] bookIds;
+        final int[] memberIds;
+        final long[] offsets; // scheduled start, nanos from the beginning of the run
+
+        Trace(long seed, int books, int members, int clients, int days, int size) {
+            this.seed = seed;
+            this.books = books;
+            this.members = members;
+            this.clients = clients;
+            this.days = days;
+            this.ops = new byte[size];
+            this.bookIds = new int[size];
+            this.memberIds = new int[size];
+            this.offsets = new long[size];
+        }
+
+        int size() {
+            return ops.length;
+        }
+
+        int clientOf(int i) {
+            return memberIds[i] % clients;
+        }
+
+        // Lends, then returns, reviews and fine payments against the same
+        // member's earlier loans. A return always follows that member's
+        // lend, but whether the lend succeeds is only known at run time.
+        // A return scheduled more than LOAN_DAYS library days after its lend
+        // will be fined, and the member tends to pay on a later visit.
+        static Trace generate(long seed, int books, int members, int clients, int days, int size,
+                              double rate, double zipfExponent) {
+            Trace trace = new Trace(seed, books, members, clients, days, size);
+            Random random = new Random(seed);
+            Zipf popularity = new Zipf(books, zipfExponent);
+            // each member's open loans, as the index of the lend
+            List<Deque<Integer>> onLoan = new ArrayList<>(members);
+            for (int m = 0; m < members; m++) {
+                onLoan.add(new ArrayDeque<>());
+            }
+            boolean[] owesFine = new boolean[members];
+            double opsPerDay = Math.max(1, size - 1) / (double) Math.max(1, days);
+
+            for (int i = 0; i < size; i++) {
+                int member = random.nextInt(members);
+                Deque<Integer> loans = onLoan.get(member);
+                double roll = random.nextDouble();
+                Op op;
+                int book;
+                if (owesFine[member] && roll < 0.50) {
+                    op = Op.PAY_FINE;
+                    book = 0;
+                    owesFine[member] = false;
+                } else if (!loans.isEmpty() && (roll < 0.40 || loans.size() >= 5)) {
+                    op = Op.RETURN;
+                    int lend = loans.pollFirst();
+                    book = trace.bookIds[lend];
+                    if (i - lend > LOAN_DAYS * opsPerDay) {
+                        owesFine[member] = true;
+                    }
+                } else if (!loans.isEmpty() && roll < 0.50) {
+                    op = Op.REVIEW;
+                    book = trace.bookIds[loans.peekLast()];
+                } else {
+                    op = Op.LEND;
+                    book = popularity.sample(random);
+                    loans.addLast(i);
+                }
+                trace.ops[i] = (byte) op.ordinal();
+                trace.bookIds[i] = book;
+                trace.memberIds[i] = member;
+                trace.offsets[i] = (long) (i * 1e9 / rate);
+            }
+            return trace;
+        }
+
+        void write(Path file) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(seed);
+                out.writeInt(books);
+                out.writeInt(members);
+                out.writeInt(clients);
+                out.writeInt(days);
+                out.writeInt(size());
+                for (int i = 0; i < size(); i++) {
+                    out.writeByte(ops[i]);
+                    out.writeInt(bookIds[i]);
+                    out.writeInt(memberIds[i]);
+                    out.writeLong(offsets[i]);
+                }
+            }
+        }
+
+        static Trace read(Path file) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Not a library workload trace: " + file);
+                }
+                Trace trace = new Trace(in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                for (int i = 0; i < trace.size(); i++) {
+                    trace.ops[i] = in.readByte();
+                    trace.bookIds[i] = in.readInt();
+                    trace.memberIds[i] = in.readInt();
+                    trace.offsets[i] = in.readLong();
+                }
+                return trace;
+            }
+        }
+    }
+
+    // Histogram Class
+    // Log-linear histogram in the style of HdrHistogram: exact below 128,
+    // then 64 sub-buckets per power of two, so every recorded value is kept
+    // to within about 1.6% from nanoseconds up to days.
+    static final class Histogram {
+        private static final int SUB_BITS = 6;
+        private static final int SUB = 1 << SUB_BITS;
+
+        private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB];
+        private long total;
+        private long max;
+
+        void record(long value) {
+            counts[index(Math.max(0, value))]++;
+            total++;
+            max = Math.max(max, value);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        static int index(long value) {
+            if (value < 2 * SUB) return (int) value;
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift + 1) * SUB + (int) (value >>> shift) - SUB;
+        }
+
+        // largest value that falls in the bucket
+        static long highestEquivalent(int index) {
+            if (index < 2 * SUB) return index;
+            int shift = index / SUB - 1;
+            long mantissa = index % SUB + SUB;
+            return ((mantissa + 1) << shift) - 1;
+        }
+
+        long percentile(double p) {
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestEquivalent(i), max);
+                }
+            }
+            return max;
+        }
+
+        long count() {
+            return total;
+        }
+    }
+
+    // Per-client results, merged once every client has finished
+    static final class Results {
+        final Histogram[] latency = new Histogram[Op.values().length];
+        final Histogram service = new Histogram();
+        final long[] rejected = new long[Op.values().length];
+        final long[] skipped = new long[Op.values().length];
+
+        Results() {
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] = new Histogram();
+            }
+        }
+
+        void add(Results other) {
+            for (int i = 0; i < latency.length; i++) {
+                latency[i].add(other.latency[i]);
+                rejected[i] += other.rejected[i];
+                skipped[i] += other.skipped[i];
+            }
+            service.add(other.service);
+        }
+    }
+
+    // SimulatedClock Class
+    // A clock that only moves when it is set; copies made by withZone share
+    // the same time
+    static final class SimulatedClock extends Clock {
+        private final AtomicLong millis;
+        private final ZoneId zone;
+
+        SimulatedClock(long millis, ZoneId zone) {
+            this(new AtomicLong(millis), zone);
+        }
+
+        private SimulatedClock(AtomicLong millis, ZoneId zone) {
+            this.millis = millis;
+            this.zone = zone;
+        }
+
+        void set(long millis) {
+            this.millis.set(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new SimulatedClock(millis, zone);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+    }
+
+    // Engine with the catalog and members generated from the trace's seed.
+    // Its clock maps the trace's schedule onto trace.days library days
+    // ending today.
+    static final class Fixture implements AutoCloseable {
+        final SimulatedClock clock;
+        final LibraryManagementSystem library;
+        final Book[] books;
+        final Member[] members;
+        private final long origin;
+        private final double millisPerNano;
+
+        Fixture(Trace trace) {
+            long span = trace.size() == 0 ? 1 : Math.max(1, trace.offsets[trace.size() - 1]);
+            millisPerNano = trace.days * 86_400_000.0 / span;
+            origin = System.currentTimeMillis() - trace.days * 86_400_000L;
+            clock = new SimulatedClock(origin, ZoneId.systemDefault());
+            library = new LibraryManagementSystem(clock);
+
+            Random random = new Random(trace.seed ^ 0x5DEECE66DL);
+            books = new Book[trace.books];
+            for (int i = 0; i < books.length; i++) {
+                // popular titles are stocked in more copies
+                int copies = i < books.length / 100 ? 5 : 1 + random.nextInt(3);
+                books[i] = new Book("ISBN-" + i, "Title " + i, "Author " + random.nextInt(Math.max(1, books.length / 10)),
+                                    GENRES[random.nextInt(GENRES.length)], 1900 + random.nextInt(125), copies);
+            }
+            members = new Member[trace.members];
+            for (int i = 0; i < members.length; i++) {
+                members[i] = new Member("M" + i, "Member " + i, "m" + i + "@example.org", "555-" + i,
+                                        membershipType(random.nextDouble()), LocalDate.now(clock));
+            }
+            library.addBooks(Arrays.asList(books));
+            library.addMembers(Arrays.asList(members));
+        }
+
+        // library time at an operation's scheduled offset
+        void advanceTo(long offset) {
+            clock.set(origin + (long) (offset * millisPerNano));
+        }
+
+        @Override
+        public void close() throws IOException {
+            library.close();
+        }
+
+        static MembershipType membershipType(double roll) {
+            for (int t = 0; t < TYPES.length; t++) {
+                roll -= TYPE_MIX[t];
+                if (roll < 0) return TYPES[t];
+            }
+            return TYPES[0];
+        }
+    }
+
+    // Runs one client's share of the trace. The engine is not thread-safe,
+    // so each operation holds the engine's monitor, the same way
+    // ShardedLibrary serializes access to a shard.
+    static Results runClient(Trace trace, Fixture fixture, int client, long start) {
+        Results results = new Results();
+        LibraryManagementSystem library = fixture.library;
+        Map<Long, Deque<String>> openLoans = new HashMap<>();
+
+        for (int i = 0; i < trace.size(); i++) {
+            if (trace.clientOf(i) != client) continue;
+            long scheduled = start + trace.offsets[i];
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Op op = Op.values()[trace.ops[i]];
+            Member member = fixture.members[trace.memberIds[i]];
+            Book book = fixture.books[trace.bookIds[i]];
+            long key = (long) trace.memberIds[i] << 32 | trace.bookIds[i];
+            long began = System.nanoTime();
+            try {
+                synchronized (library) {
+                    fixture.advanceTo(trace.offsets[i]);
+                    switch (op) {
+                        case LEND -> {
+                            LendingRecord record = library.lendBook(book.getIsbn(), member.getMemberId());
+                            openLoans.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(record.getRecordId());
+                        }
+                        case RETURN -> {
+                            Deque<String> loans = openLoans.get(key);
+                            if (loans == null || loans.isEmpty()) {
+                                // the matching lend was rejected
+                                results.skipped[op.ordinal()]++;
+                            } else {
+                                library.returnBook(loans.pollFirst());
+                            }
+                        }
+                        case REVIEW -> book.addReview(new Review("R" + i, member, book, 1 + (int) (key % 5),
+                                                                 "Generated review", LocalDate.now(fixture.clock)));
+                        case PAY_FINE -> member.getFines().stream()
+                                               .filter(fine -> !fine.isPaid())
+                                               .findFirst()
+                                               .ifPresentOrElse(library::payFine, () -> results.skipped[op.ordinal()]++);
+                    }
+                }
+            } catch (LibraryException e) {
+                results.rejected[op.ordinal()]++;
+            }
+            long end = System.nanoTime();
+            results.latency[op.ordinal()].record(end - scheduled);
+            results.service.record(end - began);
+        }
+        return results;
+    }
+
+    static Results run(Trace trace) throws InterruptedException, IOException {
+        try (Fixture fixture = new Fixture(trace)) {
+            Results[] perClient = new Results[trace.clients];
+            Thread[] threads = new Thread[trace.clients];
+            // every client gets the same start, a little in the future
+            long start = System.nanoTime() + 10_000_000;
+            for (int c = 0; c < trace.clients; c++) {
+                int client = c;
+                threads[c] = new Thread(() -> perClient[client] = runClient(trace, fixture, client, start),
+                                        "workload-client-" + c);
+                threads[c].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            Results total = new Results();
+            for (Results results : perClient) {
+                total.add(results);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            report(trace, total, seconds);
+            reportFines(fixture);
+            return total;
+        }
+    }
+
+    static void report(Trace trace, Results results, double seconds) {
+        System.out.printf("%d ops from %d clients in %.2f s: %.1f ops/s (scheduled %.1f ops/s)%n",
+                          trace.size(), trace.clients, seconds, trace.size() / seconds,
+                          trace.size() / (trace.offsets[trace.size() - 1] / 1e9 + 1e-9));
+        System.out.printf("%n%-10s %10s %10s %10s %12s %12s %12s %12s %12s%n",
+                          "op", "count", "rejected", "skipped", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        Histogram all = new Histogram();
+        for (Op op : Op.values()) {
+            Histogram latency = results.latency[op.ordinal()];
+            all.add(latency);
+            printRow(op.name(), latency, results.rejected[op.ordinal()], results.skipped[op.ordinal()]);
+        }
+        printRow("all", all, Arrays.stream(results.rejected).sum(), Arrays.stream(results.skipped).sum());
+        printRow("service", results.service, 0, 0);
+
+        System.out.printf("%nLatency distribution (from scheduled start):%n%12s %12s %10s%n",
+                          "value us", "percentile", "count");
+        for (double p : new double[] { 50, 75, 90, 95, 99, 99.9, 99.99, 100 }) {
+            System.out.printf("%12.1f %12.4f %10d%n", all.percentile(p) / 1e3, p / 100,
+                              (long) Math.ceil(p / 100 * all.count()));
+        }
+    }
+
+    // fines come from late returns over the simulated days
+    static void reportFines(Fixture fixture) {
+        long issued = 0;
+        long paid = 0;
+        for (Member member : fixture.members) {
+            for (Fine fine : member.getFines()) {
+                issued++;
+                if (fine.isPaid()) paid++;
+            }
+        }
+        System.out.printf("%nFines: %d issued for late returns, %d paid%n", issued, paid);
+        // analytics use the same simulated date as the fines
+        LongSummaryStatistics overdue = fixture.library.getAnalytics().getOverdueDaysSummary();
+        System.out.printf("Overdue: %d loans still out past their due date, %.1f days late on average%n",
+                          overdue.getCount(), overdue.getAverage());
+        System.out.println("Skipped: RETURN after its lend was rejected, PAY_FINE with no unpaid fine");
+    }
+
+    private static void printRow(String name, Histogram latency, long rejected, long skipped) {
+        System.out.printf("%-10s %10d %10d %10d %12.1f %12.1f %12.1f %12.1f %12.1f%n",
+                          name, latency.count(), rejected, skipped,
+                          latency.percentile(50) / 1e3, latency.percentile(90) / 1e3,
+                          latency.percentile(99) / 1e3, latency.percentile(99.9) / 1e3,
+                          latency.percentile(100) / 1e3);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java LibraryWorkload [--books n] [--members n] [--clients n] [--rate ops/s]");
+        System.err.println("                            [--ops n] [--zipf s] [--days n] [--seed n] [--record file] [--replay file]");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int books = 10_000;
+        int members = 1_000;
+        int clients = 8;
+        double rate = 10_000;
+        int ops = 50_000;
+        double zipf = 1.0;
+        int days = 60;
+        long seed = 42;
+        Path record = null;
+        Path replay = null;
+        for (int i = 0; i < args.length; i += 2) {
+            // every option takes a value
+            if (i + 1 == args.length) {
+                usage();
+                return;
+            }
+            switch (args[i]) {
+                case "--books" -> books = Integer.parseInt(args[i + 1]);
+                case "--members" -> members = Integer.parseInt(args[i + 1]);
+                case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+                case "--rate" -> rate = Double.parseDouble(args[i + 1]);
+                case "--ops" -> ops = Integer.parseInt(args[i + 1]);
+                case "--zipf" -> zipf = Double.parseDouble(args[i + 1]);
+                case "--days" -> days = Integer.parseInt(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--record" -> record = Path.of(args[i + 1]);
+                case "--replay" -> replay = Path.of(args[i + 1]);
+                default -> {
+                    usage();
+                    return;
+                }
+            }
+        }
+
+        Trace trace = replay != null
+            ? Trace.read(replay)
+            : Trace.generate(seed, books, members, clients, days, ops, rate, zipf);
+        if (record != null) {
+            trace.write(record);
+            System.out.println("Trace written to " + record);
+        }
+        run(trace);
+    }
+}
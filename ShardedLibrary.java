@@ -0,0 +1,474 @@
+package library;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import library.LibraryManagementSystem.*;
+
+/**
+ * Sharded Library
+ * Spreads books and members across several LibraryManagementSystem engines,
+ * one per branch or partition, while keeping the single-engine API.
+ * ISBNs and member IDs are placed on engines by consistent hashing, loans
+ * whose book and member live on different engines go through a two-phase
+ * checkout, and analytics are scattered to every engine and merged.
+ * The facade owns its engines; closing it closes them and stops the
+ * scatter threads.
+ */
+public class ShardedLibrary implements AutoCloseable {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<LibraryManagementSystem> shards;
+    private final HashRing ring;
+    // open loans by record ID, so returnBook goes straight to the member's engine
+    private final Map<String, LibraryManagementSystem> openLoans;
+    private final ExecutorService scatter;
+
+    public ShardedLibrary(int shardCount) {
+        this(Collections.nCopies(shardCount, 0).stream()
+                        .map(i -> new LibraryManagementSystem())
+                        .toList());
+    }
+
+    public ShardedLibrary(List<LibraryManagementSystem> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        this.ring = new HashRing(this.shards.size(), VIRTUAL_NODES);
+        this.openLoans = new ConcurrentHashMap<>();
+        this.scatter = Executors.newFixedThreadPool(this.shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "library-shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // HashRing Class
+    // Consistent hash ring with virtual nodes: adding or removing an engine
+    // only moves the keys between it and its ring neighbours.
+    static class HashRing {
+        private final NavigableMap<Integer, Integer> ring = new TreeMap<>();
+
+        HashRing(int shards, int virtualNodes) {
+            for (int shard = 0; shard < shards; shard++) {
+                for (int v = 0; v < virtualNodes; v++) {
+                    ring.put(hash("shard-" + shard + "#" + v), shard);
+                }
+            }
+        }
+
+        int shardFor(String key) {
+            Map.Entry<Integer, Integer> owner = ring.ceilingEntry(hash(key));
+            return (owner != null ? owner : ring.firstEntry()).getValue();
+        }
+
+        // FNV-1a with a final avalanche step; String.hashCode clusters too much
+        static int hash(String key) {
+            int h = 0x811c9dc5;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b;
+                h *= 0x01000193;
+            }
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h;
+        }
+    }
+
+    public LibraryManagementSystem shardForBook(String isbn) {
+        return shards.get(ring.shardFor(bookKey(isbn)));
+    }
+
+    public LibraryManagementSystem shardForMember(String memberId) {
+        return shards.get(ring.shardFor(memberKey(memberId)));
+    }
+
+    static String bookKey(String isbn) {
+        return "book:" + isbn;
+    }
+
+    static String memberKey(String memberId) {
+        return "member:" + memberId;
+    }
+
+    public List<LibraryManagementSystem> getShards() {
+        return shards;
+    }
+
+    // Catalog and Membership
+    public void addBook(Book book) {
+        LibraryManagementSystem shard = shardForBook(book.getIsbn());
+        synchronized (shard) {
+            shard.addBook(book);
+        }
+    }
+
+    public void removeBook(String isbn) {
+        LibraryManagementSystem shard = shardForBook(isbn);
+        synchronized (shard) {
+            shard.removeBook(isbn);
+        }
+    }
+
+    public void addMember(Member member) {
+        LibraryManagementSystem shard = shardForMember(member.getMemberId());
+        synchronized (shard) {
+            shard.addMember(member);
+        }
+    }
+
+    public void removeMember(String memberId) {
+        LibraryManagementSystem shard = shardForMember(memberId);
+        synchronized (shard) {
+            shard.removeMember(memberId);
+        }
+    }
+
+    // Lending
+    // Engines are locked in shard order, so concurrent cross-shard loans
+    // cannot deadlock.
+    public LendingRecord lendBook(String isbn, String memberId) throws LibraryException {
+        LibraryManagementSystem bookShard = shardForBook(isbn);
+        LibraryManagementSystem memberShard = shardForMember(memberId);
+
+        if (bookShard == memberShard) {
+            synchronized (bookShard) {
+                LendingRecord record = bookShard.lendBook(isbn, memberId);
+                openLoans.put(record.getRecordId(), bookShard);
+                return record;
+            }
+        }
+
+        LibraryManagementSystem first = shards.indexOf(bookShard) < shards.indexOf(memberShard) ? bookShard : memberShard;
+        LibraryManagementSystem second = first == bookShard ? memberShard : bookShard;
+        synchronized (first) {
+            synchronized (second) {
+                // phase one: both sides validate, in lendBook's order
+                Book book = bookShard.prepareCheckout(isbn, memberId);
+                Member member = memberShard.prepareBorrow(memberId);
+
+                // phase two: the copy is set aside and the loan is recorded
+                // with the member
+                bookShard.commitCheckout(book, memberId);
+                LendingRecord record = memberShard.commitBorrow(book, member);
+                openLoans.put(record.getRecordId(), memberShard);
+                return record;
+            }
+        }
+    }
+
+    public void returnBook(String recordId) throws LibraryException {
+        LibraryManagementSystem memberShard = openLoans.get(recordId);
+        if (memberShard == null) {
+            // opened before the engine was wrapped, or reloaded with load()
+            memberShard = findLoan(recordId);
+        }
+
+        LendingRecord record;
+        synchronized (memberShard) {
+            record = memberShard.closeLoan(recordId);
+        }
+        openLoans.remove(recordId);
+
+        LibraryManagementSystem bookShard = shardForBook(record.getBook().getIsbn());
+        synchronized (bookShard) {
+            bookShard.releaseCopy(record.getBook().getIsbn());
+        }
+    }
+
+    private LibraryManagementSystem findLoan(String recordId) throws LibraryException {
+        for (LibraryManagementSystem shard : shards) {
+            synchronized (shard) {
+                if (shard.findLendingRecord(recordId) != null) {
+                    return shard;
+                }
+            }
+        }
+        throw new LibraryException("Lending record not found");
+    }
+
+    // Holds
+    // A hold is queued on the book's engine, which sets returned copies
+    // aside for it; lendBook picks the copy up from either side.
+    public Hold placeHold(String isbn, String memberId) throws LibraryException {
+        LibraryManagementSystem bookShard = shardForBook(isbn);
+        LibraryManagementSystem memberShard = shardForMember(memberId);
+
+        if (bookShard == memberShard) {
+            synchronized (bookShard) {
+                return bookShard.placeHold(isbn, memberId);
+            }
+        }
+
+        LibraryManagementSystem first = shards.indexOf(bookShard) < shards.indexOf(memberShard) ? bookShard : memberShard;
+        LibraryManagementSystem second = first == bookShard ? memberShard : bookShard;
+        synchronized (first) {
+            synchronized (second) {
+                Member member = memberShard.findMember(memberId);
+                if (member == null) {
+                    throw new LibraryException("Book or member not found");
+                }
+                return bookShard.placeHold(isbn, member);
+            }
+        }
+    }
+
+    public void cancelHold(String isbn, String memberId) throws LibraryException {
+        LibraryManagementSystem bookShard = shardForBook(isbn);
+        synchronized (bookShard) {
+            bookShard.cancelHold(isbn, memberId);
+        }
+    }
+
+    public int getHoldQueueLength(String isbn) {
+        LibraryManagementSystem bookShard = shardForBook(isbn);
+        synchronized (bookShard) {
+            return bookShard.getHoldQueueLength(isbn);
+        }
+    }
+
+    // Scatter-Gather Analytics
+    // Engine snapshots are lock-free, so queries run alongside lending
+    private <T> List<T> gather(Function<LibraryAnalytics, T> query) {
+        List<CompletableFuture<T>> partials = shards.stream()
+            .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard.getAnalytics()), scatter))
+            .toList();
+        return partials.stream().map(CompletableFuture::join).toList();
+    }
+
+    public ShardedAnalytics getAnalytics() {
+        return new ShardedAnalytics();
+    }
+
+    // Stops the scatter threads and closes every engine; the first
+    // failure is rethrown once all of them have been closed
+    @Override
+    public void close() throws IOException {
+        scatter.shutdown();
+        IOException failure = null;
+        for (LibraryManagementSystem shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Same queries as LibraryAnalytics, answered from every engine's partials
+    public class ShardedAnalytics {
+        public Map<String, Integer> getGenreDistribution() {
+            Map<String, Integer> distribution = new HashMap<>();
+            gather(LibraryAnalytics::getGenreDistribution)
+                .forEach(partial -> partial.forEach((genre, count) ->
+                    distribution.merge(genre, count, Integer::sum)));
+            return distribution;
+        }
+
+        public Map<MembershipType, Long> getMembershipDistribution() {
+            Map<MembershipType, Long> distribution = new EnumMap<>(MembershipType.class);
+            gather(LibraryAnalytics::getMembershipDistribution)
+                .forEach(partial -> partial.forEach((type, count) ->
+                    distribution.merge(type, count, Long::sum)));
+            return distribution;
+        }
+
+        public double getAverageOverdueDays() {
+            LongSummaryStatistics overdue = new LongSummaryStatistics();
+            gather(LibraryAnalytics::getOverdueDaysSummary).forEach(overdue::combine);
+            return overdue.getAverage();
+        }
+
+        // loans of a book can be recorded on any member's engine, so counts
+        // are merged first; each engine then ranks its own catalog
+        public List<BookPopularityStats> getMostPopularBooks(int limit) {
+            Map<String, Long> borrowCount = new HashMap<>();
+            gather(LibraryAnalytics::getBorrowCounts)
+                .forEach(partial -> partial.forEach((isbn, count) ->
+                    borrowCount.merge(isbn, count, Long::sum)));
+
+            return gather(analytics -> analytics.getMostPopularBooks(borrowCount, limit)).stream()
+                .flatMap(List::stream)
+                .sorted()
+                .limit(limit)
+                .toList();
+        }
+
+        // a member's whole history lives on its engine, so per-engine top
+        // lists merge exactly
+        public List<Member> getTopBorrowers(int limit) {
+            record Ranked(Member member, int count) {}
+            return gather(analytics -> analytics.getTopBorrowers(limit).stream()
+                    .map(member -> new Ranked(member, analytics.getLendingCount(member.getMemberId())))
+                    .toList())
+                .stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingInt(Ranked::count).reversed())
+                .limit(limit)
+                .map(Ranked::member)
+                .collect(Collectors.toList());
+        }
+    }
+
+    // Self-Check
+    // Runs one seeded script of loans, returns and holds against a single
+    // engine and against several in-process shards, and checks that every
+    // operation has the same outcome and that the analytics agree. Some
+    // loans are opened on the engines before they are wrapped, so returns
+    // also go through the fallback lookup.
+    // Usage: java library.ShardedLibrary [shards] [operations]
+    public static void main(String[] args) throws IOException {
+        int shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int bookCount = 200;
+        int memberCount = 100;
+        String[] genres = { "Fiction", "Science", "History", "Poetry", "Travel" };
+        MembershipType[] types = MembershipType.values();
+
+        LibraryManagementSystem single = new LibraryManagementSystem();
+        List<LibraryManagementSystem> engines = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            engines.add(new LibraryManagementSystem());
+        }
+        HashRing ring = new HashRing(shardCount, VIRTUAL_NODES);
+        // each side gets its own objects, as separate engines would
+        for (int i = 0; i < bookCount; i++) {
+            String isbn = "ISBN-" + i;
+            single.addBook(new Book(isbn, "Title " + i, "Author " + i % 40, genres[i % genres.length], 2000, 1 + i % 2));
+            engines.get(ring.shardFor(bookKey(isbn)))
+                   .addBook(new Book(isbn, "Title " + i, "Author " + i % 40, genres[i % genres.length], 2000, 1 + i % 2));
+        }
+        for (int i = 0; i < memberCount; i++) {
+            String id = "M" + i;
+            single.addMember(new Member(id, "Member " + i, id + "@example.org", "555-0100", types[i % types.length]));
+            engines.get(ring.shardFor(memberKey(id)))
+                   .addMember(new Member(id, "Member " + i, id + "@example.org", "555-0100", types[i % types.length]));
+        }
+
+        // record IDs differ between the two sides, so loans are kept in pairs
+        record Loan(String single, String sharded) {}
+        List<Loan> open = new ArrayList<>();
+        List<String> mismatches = new ArrayList<>();
+        Random random = new Random(42);
+        int prewrapped = 0;
+        for (int i = 0; i < bookCount; i++) {
+            String isbn = "ISBN-" + i;
+            String memberId = "M" + i % memberCount;
+            LibraryManagementSystem engine = engines.get(ring.shardFor(bookKey(isbn)));
+            if (engine == engines.get(ring.shardFor(memberKey(memberId))) && random.nextInt(4) == 0) {
+                try {
+                    open.add(new Loan(single.lendBook(isbn, memberId).getRecordId(),
+                                      engine.lendBook(isbn, memberId).getRecordId()));
+                    prewrapped++;
+                } catch (LibraryException e) {
+                    mismatches.add("pre-wrap lend " + isbn + ": " + e.getMessage());
+                }
+            }
+        }
+
+        try (single; ShardedLibrary sharded = new ShardedLibrary(engines)) {
+            List<String[]> holds = new ArrayList<>();
+            int lends = 0;
+            int pickups = 0;
+            for (int op = 0; op < operations; op++) {
+                String isbn = "ISBN-" + random.nextInt(bookCount);
+                String memberId = "M" + random.nextInt(memberCount);
+                double roll = random.nextDouble();
+                String expected;
+                String actual;
+                if (roll < 0.30 && !open.isEmpty()) {
+                    Loan loan = open.remove(random.nextInt(open.size()));
+                    expected = outcome(() -> single.returnBook(loan.single()));
+                    actual = outcome(() -> sharded.returnBook(loan.sharded()));
+                } else if (roll < 0.45) {
+                    expected = outcome(() -> single.placeHold(isbn, memberId));
+                    actual = outcome(() -> sharded.placeHold(isbn, memberId));
+                    if (expected.equals("ok")) {
+                        holds.add(new String[] { isbn, memberId });
+                    }
+                } else if (roll < 0.50 && !holds.isEmpty()) {
+                    String[] hold = holds.remove(random.nextInt(holds.size()));
+                    expected = outcome(() -> single.cancelHold(hold[0], hold[1]));
+                    actual = outcome(() -> sharded.cancelHold(hold[0], hold[1]));
+                } else {
+                    // a hold's member comes back for the book now and then
+                    boolean pickup = roll < 0.60 && !holds.isEmpty();
+                    String[] target = pickup ? holds.get(random.nextInt(holds.size())) : new String[] { isbn, memberId };
+                    LendingRecord[] lent = new LendingRecord[2];
+                    expected = outcome(() -> lent[0] = single.lendBook(target[0], target[1]));
+                    actual = outcome(() -> lent[1] = sharded.lendBook(target[0], target[1]));
+                    if (lent[0] != null && lent[1] != null) {
+                        open.add(new Loan(lent[0].getRecordId(), lent[1].getRecordId()));
+                        lends++;
+                        pickups += pickup ? 1 : 0;
+                    }
+                }
+                if (!expected.equals(actual)) {
+                    mismatches.add("operation " + op + ": " + expected + " on one engine, " + actual + " sharded");
+                }
+            }
+
+            LibraryAnalytics expected = single.getAnalytics();
+            ShardedAnalytics actual = sharded.getAnalytics();
+            check(mismatches, "genre distribution", expected.getGenreDistribution(), actual.getGenreDistribution());
+            check(mismatches, "membership distribution",
+                  new EnumMap<>(expected.getMembershipDistribution()), actual.getMembershipDistribution());
+            check(mismatches, "popular books",
+                  expected.getMostPopularBooks(bookCount).stream().map(Object::toString).sorted().toList(),
+                  actual.getMostPopularBooks(bookCount).stream().map(Object::toString).sorted().toList());
+            for (int i = 0; i < memberCount; i++) {
+                String id = "M" + i;
+                check(mismatches, "loans of " + id, expected.getLendingCount(id),
+                      sharded.shardForMember(id).getAnalytics().getLendingCount(id));
+            }
+            for (int i = 0; i < bookCount; i++) {
+                String isbn = "ISBN-" + i;
+                check(mismatches, "hold queue of " + isbn, single.getHoldQueueLength(isbn), sharded.getHoldQueueLength(isbn));
+            }
+
+            System.out.printf("%d shards, %d operations: %d loans (%d hold pickups), %d opened before wrapping%n",
+                              shardCount, operations, lends + prewrapped, pickups, prewrapped);
+        }
+
+        if (!mismatches.isEmpty()) {
+            mismatches.stream().limit(20).forEach(System.out::println);
+            System.out.printf("%d mismatches%n", mismatches.size());
+            System.exit(1);
+        }
+        System.out.println("Every outcome and analytic matches the single engine");
+    }
+
+    interface Operation {
+        void run() throws LibraryException;
+    }
+
+    private static String outcome(Operation operation) {
+        try {
+            operation.run();
+            return "ok";
+        } catch (LibraryException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static void check(List<String> mismatches, String what, Object expected, Object actual) {
+        if (!expected.equals(actual)) {
+            mismatches.add(what + ": " + expected + " on one engine, " + actual + " sharded");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package countdown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static countdown.CountDownBenchmarks.DRAW;
+
+/*
+ * combine'' over every pair of a left and right sub-problem: the
+ * Stream-based Result version against the scalar and the vector int-array
+ * kernels. The vector kernel is built directly, so it is measured whether
+ * or not -Dcountdown.vector=true selects it for the solver.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class CombineBenchmarks {
+
+   @Param({ "2", "3" })
+   int splitSize;
+
+   List<CountDownProblem.Result> lxs;
+   List<CountDownProblem.Result> rys;
+   int[] xs;
+   int[] ys;
+   CountDownProblem.ScalarKernel scalar;
+   CountDownVectorKernel vector;
+
+   // the results for the first and last splitSize numbers of DRAW
+   @Setup
+   public void setup() {
+      lxs = CountDownProblem.results(DRAW.subList(0, splitSize));
+      rys = CountDownProblem.results(DRAW.subList(DRAW.size() - splitSize, DRAW.size()));
+      xs = lxs.stream().mapToInt(CountDownProblem.Result::value).toArray();
+      ys = rys.stream().mapToInt(CountDownProblem.Result::value).toArray();
+      scalar = new CountDownProblem.ScalarKernel();
+      vector = new CountDownVectorKernel();
+      if (vector.combine(xs, ys).length != scalar.combine(xs, ys).length) {
+         throw new IllegalStateException("vector and scalar kernels disagree");
+      }
+   }
+
+   @Benchmark
+   public long stream() {
+      long n = 0;
+      var table = new CountDownProblem.ExprTable();
+      for (var lx : lxs) {
+         for (var ry : rys) {
+            n += CountDownProblem.combine(lx, ry, table).size();
+         }
+      }
+      return n;
+   }
+
+   @Benchmark
+   public int scalar() {
+      return scalar.combine(xs, ys).length;
+   }
+
+   @Benchmark
+   public int vector() {
+      return vector.combine(xs, ys).length;
+   }
+}
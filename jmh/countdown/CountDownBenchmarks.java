@@ -0,0 +1,63 @@
+package countdown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Throughput of the CountDown solver for the classic draw truncated to
+ * 4, 5 and 6 numbers. Run with -prof gc for bytes/op.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CountDownBenchmarks {
+
+   static final List<Integer> DRAW = List.of(1, 3, 7, 10, 25, 50);
+   static final int TARGET = 765;
+
+   @Param({ "4", "5", "6" })
+   int drawSize;
+
+   List<Integer> ns;
+
+   @Setup
+   public void setup() {
+      ns = DRAW.subList(0, drawSize);
+   }
+
+   @Benchmark
+   public long solutions() {
+      return CountDownProblem.solutions(ns, TARGET).count();
+   }
+
+   // first five solutions by iterative deepening, from a cold memo
+   @Benchmark
+   public long simplest() {
+      return CountDownProblem.simplestSolutions(ns, TARGET).limit(5).count();
+   }
+
+   @Benchmark
+   public int results() {
+      return CountDownProblem.results(ns).size();
+   }
+
+   @Benchmark
+   public long perms() {
+      return CountDownProblem.perms(ns).count();
+   }
+}
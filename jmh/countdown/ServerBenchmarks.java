@@ -0,0 +1,54 @@
+package countdown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Puzzles per second through a resident server, 8 targets per draw. With
+ * 64 cached draws the smaller puzzle set stays warm and the larger one
+ * cycles through the cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerBenchmarks {
+
+   @Param({ "64", "512" })
+   int draws;
+
+   CountDownServer server;
+   List<String> puzzles;
+   int next;
+
+   @Setup
+   public void setup() {
+      server = new CountDownServer(64, null);
+      puzzles = CountDownServer.puzzles(draws * 8);
+   }
+
+   @TearDown
+   public void tearDown() {
+      server.close();
+   }
+
+   @Benchmark
+   public int handle() {
+      return server.handle(puzzles.get(next++ % puzzles.size())).solutions().size();
+   }
+}
@@ -0,0 +1,62 @@
+package library;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Analytics Benchmarks
+ * Analytics queries over a 1,000-title catalog with a closed lending
+ * history of 100 to 10,000 loans.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalyticsBenchmarks {
+    @Param({ "100", "1000", "10000" })
+    int history;
+
+    LibraryManagementSystem library;
+    LibraryManagementSystem.LibraryAnalytics analytics;
+
+    @Setup
+    public void setup() {
+        library = Fixtures.library(1000, 100, history);
+        analytics = library.getAnalytics();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        library.close();
+    }
+
+    @Benchmark
+    public int popularBooks() {
+        return analytics.getMostPopularBooks(10).size();
+    }
+
+    @Benchmark
+    public int topBorrowers() {
+        return analytics.getTopBorrowers(10).size();
+    }
+
+    @Benchmark
+    public double averageOverdueDays() {
+        return analytics.getAverageOverdueDays();
+    }
+}
@@ -0,0 +1,55 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import library.LibraryManagementSystem.Book;
+import library.LibraryManagementSystem.LibraryException;
+import library.LibraryManagementSystem.Member;
+import library.LibraryManagementSystem.MembershipType;
+
+/**
+ * Fixtures
+ * Engines with a generated catalog, membership and closed lending history,
+ * shared by the library benchmarks.
+ */
+final class Fixtures {
+    private Fixtures() {}
+
+    static String isbn(int i) {
+        return "ISBN-" + i;
+    }
+
+    static String memberId(int i) {
+        return "M" + i;
+    }
+
+    // A catalog with the given number of titles and members, and a closed
+    // lending history of the given length spread across them
+    static LibraryManagementSystem library(int books, int members, int history) {
+        LibraryManagementSystem library = new LibraryManagementSystem();
+        String[] genres = { "Fiction", "Science", "History", "Poetry", "Travel" };
+        MembershipType[] types = MembershipType.values();
+        List<Book> catalog = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            catalog.add(new Book(isbn(i), "Title " + i, "Author " + (i % 500),
+                                 genres[i % genres.length], 1900 + i % 120, 3));
+        }
+        library.addBooks(catalog);
+        List<Member> membership = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            membership.add(new Member(memberId(i), "Member " + i, "m" + i + "@example.org",
+                                      "555-" + i, types[i % types.length]));
+        }
+        library.addMembers(membership);
+        try {
+            for (int i = 0; i < history; i++) {
+                var record = library.lendBook(isbn(i % books), memberId(i % members));
+                library.returnBook(record.getRecordId());
+            }
+        } catch (LibraryException e) {
+            throw new IllegalStateException("Cannot build benchmark history", e);
+        }
+        return library;
+    }
+}
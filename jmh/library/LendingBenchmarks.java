@@ -0,0 +1,63 @@
+package library;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static library.Fixtures.isbn;
+import static library.Fixtures.memberId;
+
+/**
+ * Lending Benchmarks
+ * A lend and its return, cycling through catalogs of 1,000 to 100,000
+ * titles. Each iteration times a fixed batch of BATCH pairs on a fresh
+ * engine, so every iteration sees the same history length and the score
+ * settles instead of drifting as the history grows.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = LendingBenchmarks.BATCH)
+@Measurement(iterations = 20, batchSize = LendingBenchmarks.BATCH)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LendingBenchmarks {
+    static final int BATCH = 1000;
+
+    @Param({ "1000", "10000", "100000" })
+    int catalogSize;
+
+    LibraryManagementSystem library;
+    int next;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        library = Fixtures.library(catalogSize, 100, 0);
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        library.close();
+    }
+
+    @Benchmark
+    public int lendReturn() throws LibraryManagementSystem.LibraryException {
+        int i = next++;
+        var record = library.lendBook(isbn(i % catalogSize), memberId(i % 100));
+        library.returnBook(record.getRecordId());
+        return record.hashCode();
+    }
+}
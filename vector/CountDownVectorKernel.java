@@ -0,0 +1,76 @@
+package countdown;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * SIMD version of CountDownProblem.ScalarKernel using the incubating
+ * Vector API. For each left value x, whole lanes of right values y get
+ * all four operators and their valid' masks at once, and the valid
+ * results are compressed into the output.
+ *
+ * Build and run (JDK 21+):
+ *   gradle build
+ *   java --add-modules jdk.incubator.vector -Dcountdown.vector=true -cp build/classes/java/main countdown.CountDownProblem ...
+ */
+final class CountDownVectorKernel implements CountDownProblem.CombineKernel {
+
+   private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+   @Override
+   public int[] combine(int[] xs, int[] ys) {
+      var lanes = SPECIES.length();
+      // room for every result plus one vector of compress() overhang
+      var out = new int[CountDownProblem.operators.length * xs.length * ys.length + lanes];
+      var n = 0;
+      var bound = SPECIES.loopBound(ys.length);
+
+      for (int x : xs) {
+         var vx = IntVector.broadcast(SPECIES, x);
+         var i = 0;
+         for (; i < bound; i += lanes) {
+            var vy = IntVector.fromArray(SPECIES, ys, i);
+            var yNotOne = vy.compare(VectorOperators.NE, 1);
+
+            // Add: x <= y
+            var ordered = vx.compare(VectorOperators.LE, vy);
+            n = store(vx.add(vy), ordered, out, n);
+
+            // Sub: x > y
+            n = store(vx.sub(vy), ordered.not(), out, n);
+
+            // Mul: x != 1 && y != 1 && x <= y
+            if (x != 1) {
+               n = store(vx.mul(vy), ordered.and(yNotOne), out, n);
+            }
+
+            // Div: y != 1 && x % y == 0
+            var q = vx.div(vy);
+            n = store(q, yNotOne.and(q.mul(vy).compare(VectorOperators.EQ, vx)), out, n);
+         }
+
+         // scalar tail
+         for (; i < ys.length; i++) {
+            var y = ys[i];
+            for (CountDownProblem.Op op : CountDownProblem.operators) {
+               if (CountDownProblem.isValid(op, x, y)) {
+                  out[n++] = CountDownProblem.apply(op, x, y);
+               }
+            }
+         }
+      }
+      return Arrays.copyOf(out, n);
+   }
+
+   private static int store(IntVector v, VectorMask<Integer> valid, int[] out, int n) {
+      if (!valid.anyTrue()) {
+         return n;
+      }
+      v.compress(valid).intoArray(out, n);
+      return n + valid.trueCount();
+   }
+}